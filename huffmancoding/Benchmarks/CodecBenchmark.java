@@ -0,0 +1,398 @@
+/*
+ *  Copyright (C) 2016 Cezary Regec (SudoWaster)
+ * 
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package huffmancoding.Benchmarks;
+
+import huffmancoding.Coders.HuffmanDecoder;
+import huffmancoding.Coders.HuffmanEncoder;
+import huffmancoding.TextTools.CharacterOccurrence;
+import huffmancoding.TextTools.HuffmanCharacter;
+import huffmancoding.TextTools.OccurrenceCounter;
+import huffmancoding.Tree.HuffmanTree;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks of counting, tree construction, encoding, dictionary
+ * creation and decoding on synthetic distributions and on corpus files
+ * (such as the Canterbury or Silesia corpora), at a range of input sizes.
+ * Encoding is also measured without boxing, against the old String based
+ * encoding loop.
+ *
+ * The size parameter is a character count with an optional K, M or G
+ * suffix. The source parameter is uniform, english, zipf or a path to a
+ * corpus file, read as UTF-8 and repeated or cut to the size:
+ *
+ *  java -jar benchmarks/target/benchmarks.jar CodecBenchmark \
+ *      -p size=100,10K,1M,100M -p source=zipf,corpus/alice29.txt -prof gc
+ *
+ * Scores are ops/s, the megabytes counter is MB/s of input chars (two
+ * bytes each) and -prof gc adds gc.alloc.rate.norm - bytes allocated per
+ * op. The largest sizes need a bigger heap (-jvmArgs -Xmx8g).
+ *
+ * @author cezary
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+
+    /**
+     * Input size in characters
+     */
+    @Param({"100", "10K", "1M"})
+    public String size;
+
+    /**
+     * A synthetic distribution or a corpus file
+     */
+    @Param({"uniform", "english", "zipf"})
+    public String source;
+
+    /**
+     * Input megabytes per op, counted as a rate.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Throughput {
+
+        /**
+         * Megabytes of input processed
+         */
+        public double megabytes;
+
+        /**
+         * Clears the counter before every iteration.
+         */
+        @Setup(Level.Iteration)
+        public void clear() {
+            megabytes = 0;
+        }
+    }
+
+    /**
+     * Makes the input, its codes, and checks that it decodes back.
+     *
+     * @throws IOException when a corpus file cannot be read
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        text = resize(createSource(source), parseSize(size));
+        megabytes = 2.0 * text.length() / (1 << 20);
+
+        occurrences = new OccurrenceCounter(text).getFullOccurrence();
+        encoder = new HuffmanEncoder(text, true, true);
+        decoder = new HuffmanDecoder(encoder.getEncoded(),
+                encoder.getDictionary(), true, true);
+
+        if(!decoder.getDecoded().equals(text)) {
+            throw new IllegalStateException("Round trip failed for "
+                    + source + "/" + size);
+        }
+
+        if(!Arrays.equals(encodeWithStrings(encoder.tree, text),
+                encoder.encode())) {
+            throw new IllegalStateException("Encoders produce different"
+                    + " output for " + source + "/" + size);
+        }
+    }
+
+    /**
+     * @param throughput a Throughput counter
+     * @return counted occurrences
+     */
+    @Benchmark
+    public CharacterOccurrence[] count(Throughput throughput) {
+        throughput.megabytes += megabytes;
+
+        return new OccurrenceCounter(text).getFullOccurrence();
+    }
+
+    /**
+     * @param throughput a Throughput counter
+     * @return a HuffmanTree
+     */
+    @Benchmark
+    public HuffmanTree tree(Throughput throughput) {
+        throughput.megabytes += megabytes;
+
+        return new HuffmanTree(occurrences.clone());
+    }
+
+    /**
+     * @param throughput a Throughput counter
+     * @return encoded bytes
+     */
+    @Benchmark
+    public Byte[] encode(Throughput throughput) {
+        throughput.megabytes += megabytes;
+
+        return encoder.getEncoded();
+    }
+
+    /**
+     * @param throughput a Throughput counter
+     * @return encoded bytes
+     */
+    @Benchmark
+    public byte[] encodeBits(Throughput throughput) {
+        throughput.megabytes += megabytes;
+
+        return encoder.encode();
+    }
+
+    /**
+     * @param throughput a Throughput counter
+     * @return encoded bytes
+     */
+    @Benchmark
+    public byte[] encodeStrings(Throughput throughput) {
+        throughput.megabytes += megabytes;
+
+        return encodeWithStrings(encoder.tree, text);
+    }
+
+    /**
+     * @param throughput a Throughput counter
+     * @return a dictionary
+     */
+    @Benchmark
+    public Byte[] dictionary(Throughput throughput) {
+        throughput.megabytes += megabytes;
+
+        return encoder.getDictionary();
+    }
+
+    /**
+     * @param throughput a Throughput counter
+     * @return the decoded text
+     */
+    @Benchmark
+    public String decode(Throughput throughput) {
+        throughput.megabytes += megabytes;
+
+        return decoder.getDecoded();
+    }
+
+    /**
+     * The original String based encoding loop, kept as a reference.
+     *
+     * @param tree a HuffmanTree of the text
+     * @param text a String to encode
+     * @return an encoded byte array
+     */
+    private static byte[] encodeWithStrings(HuffmanTree tree, String text) {
+        ArrayList<Byte> bytelist = new ArrayList<Byte>();
+        String leftover = new String();
+
+        for(int i = 0; i < text.length(); i++) {
+            HuffmanCharacter currentCharacter = tree.get(text.charAt(i));
+            String collectiveBuffer = leftover + currentCharacter.getID();
+
+            while(collectiveBuffer.length() >= 8) {
+                String tempByteBuffer = collectiveBuffer.substring(0, 8);
+                collectiveBuffer = collectiveBuffer.substring(8);
+
+                bytelist.add((byte) Integer.parseInt(tempByteBuffer, 2));
+            }
+
+            leftover = collectiveBuffer;
+        }
+
+        if(leftover.length() > 0) {
+
+            while(leftover.length() < 8) {
+                leftover += "0";
+            }
+
+            bytelist.add((byte) Integer.parseInt(leftover, 2));
+        }
+
+        byte[] result = new byte[bytelist.size()];
+
+        for(int i = 0; i < result.length; i++) {
+            result[i] = bytelist.get(i);
+        }
+
+        return result;
+    }
+
+    /**
+     * Creates a synthetic text or reads a corpus file.
+     *
+     * @param source a String distribution name or file path
+     * @return a String input
+     * @throws IOException when a corpus file cannot be read
+     */
+    private static String createSource(String source) throws IOException {
+        if(source.equals("uniform")) {
+            return createText(64 * 1024, UNIFORM);
+        } else if(source.equals("english")) {
+            return createText(64 * 1024, ENGLISH);
+        } else if(source.equals("zipf")) {
+            return createZipf(64 * 1024);
+        }
+
+        return new String(Files.readAllBytes(Paths.get(source)),
+                StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Creates a pseudo-random text of letters drawn from a pool
+     *
+     * @param size an int amount of characters
+     * @param letters a String pool, repeated letters are more likely
+     * @return a String input
+     */
+    private static String createText(int size, String letters) {
+        Random random = new Random(42);
+        char[] text = new char[size];
+
+        for(int i = 0; i < size; i++) {
+            text[i] = letters.charAt(random.nextInt(letters.length()));
+        }
+
+        return new String(text);
+    }
+
+    /**
+     * Creates a pseudo-random text over a large alphabet, where the n-th
+     * character is about n times less likely than the first one
+     *
+     * @param size an int amount of characters
+     * @return a String input
+     */
+    private static String createZipf(int size) {
+        Random random = new Random(42);
+        char[] text = new char[size];
+
+        //
+        // Cumulative weights of 1/n
+        //
+        double[] cumulative = new double[ZIPF_SYMBOLS];
+        double sum = 0;
+
+        for(int i = 0; i < ZIPF_SYMBOLS; i++) {
+            sum += 1.0 / (i + 1);
+            cumulative[i] = sum;
+        }
+
+        for(int i = 0; i < size; i++) {
+            int index = Arrays.binarySearch(cumulative,
+                    random.nextDouble() * sum);
+
+            text[i] = (char) ('Ā' + (index < 0 ? -index - 1 : index));
+        }
+
+        return new String(text);
+    }
+
+    /**
+     * Repeats or cuts a text to a size.
+     *
+     * @param text a String source
+     * @param size an int amount of characters
+     * @return a String of the size
+     */
+    private static String resize(String text, int size) {
+        StringBuilder result = new StringBuilder(size);
+
+        while(result.length() < size) {
+            result.append(text, 0,
+                    Math.min(text.length(), size - result.length()));
+        }
+
+        return result.toString();
+    }
+
+    /**
+     * Parses a size with an optional K, M or G suffix.
+     *
+     * @param size a String size
+     * @return an int amount of characters
+     */
+    private static int parseSize(String size) {
+        String digits = size.trim().toUpperCase();
+        long multiplier = 1;
+
+        if(digits.endsWith("K")) {
+            multiplier = 1L << 10;
+        } else if(digits.endsWith("M")) {
+            multiplier = 1L << 20;
+        } else if(digits.endsWith("G")) {
+            multiplier = 1L << 30;
+        }
+
+        if(multiplier > 1) {
+            digits = digits.substring(0, digits.length() - 1);
+        }
+
+        long result = Long.parseLong(digits) * multiplier;
+
+        if(result < 1 || result > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Size " + size
+                    + " is out of range");
+        }
+
+        return (int) result;
+    }
+
+    //
+    // Input and what the benchmarks work on
+    //
+    private String text;
+    private double megabytes;
+    private CharacterOccurrence[] occurrences;
+    private HuffmanEncoder encoder;
+    private HuffmanDecoder decoder;
+
+    //
+    // Letter pools of synthetic texts
+    //
+    private static final String UNIFORM =
+            "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+    private static final String ENGLISH =
+            "eeeeeeetttttaaaaoooiiinnsshhrdlu cmfwypvbgkjqxz";
+
+    //
+    // Alphabet size of the zipf text
+    //
+    private static final int ZIPF_SYMBOLS = 4096;
+}
@@ -0,0 +1,96 @@
+/*
+ *  Copyright (C) 2016 Cezary Regec (SudoWaster)
+ * 
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package huffmancoding.Benchmarks;
+
+import huffmancoding.TextTools.OccurrenceCounter;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmark of character counting the way the encoders do it, through
+ * OccurrenceCounter and Histogram.count(String). Sizes go from below
+ * Histogram.UNROLL_THRESHOLD to well above it, under the parallel
+ * threshold, so the single threaded interleaved path is what runs:
+ *
+ *  java -jar benchmarks/target/benchmarks.jar HistogramBenchmark -prof gc
+ *
+ * @author cezary
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HistogramBenchmark {
+
+    /**
+     * Amount of characters
+     */
+    @Param({"16384", "65536", "1048576"})
+    public int size;
+
+    /**
+     * Amount of letters, with fewer the same ones follow each other more
+     * often - the case the interleaved tables are for
+     */
+    @Param({"4", "26"})
+    public int letters;
+
+    /**
+     * Makes a text of normally distributed letters.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        char[] chars = new char[size];
+
+        for(int i = 0; i < size; i++) {
+            chars[i] = (char) ('a' + Math.min(letters - 1,
+                    (int) Math.abs(random.nextGaussian() * letters / 6)));
+        }
+
+        text = new String(chars);
+    }
+
+    /**
+     * @return counts
+     */
+    @Benchmark
+    public int[] count() {
+        return new OccurrenceCounter(text).getHistogram();
+    }
+
+    //
+    // Input text
+    //
+    private String text;
+}
@@ -0,0 +1,139 @@
+/*
+ *  Copyright (C) 2016 Cezary Regec (SudoWaster)
+ * 
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package huffmancoding.Benchmarks;
+
+import huffmancoding.Kernels.Kernels;
+import huffmancoding.Streams.HuffmanOutputStream;
+import huffmancoding.TextTools.Histogram;
+import huffmancoding.TextTools.OccurrenceCounter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks of the byte counting callers - OccurrenceCounter and
+ * HuffmanOutputStream - with the scalar and the vector kernel. Every
+ * kernel runs in its own fork, chosen with the huffmancoding.kernel
+ * property as an application would. Counts are checked against the
+ * scalar histogram first:
+ *
+ *  java -jar benchmarks/target/benchmarks.jar KernelBenchmark \
+ *      -jvmArgsAppend --add-modules=jdk.incubator.vector -prof gc
+ *
+ * @author cezary
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KernelBenchmark {
+
+    /**
+     * Amount of bytes, a stream block and a bigger input
+     */
+    @Param({"65536", "1048576"})
+    public int size;
+
+    /**
+     * Kernel name, scalar or vector
+     */
+    @Param({"scalar", "vector"})
+    public String kernel;
+
+    /**
+     * Makes skewed bytes, as in text, and picks the kernel.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        System.setProperty(Kernels.PROPERTY, kernel);
+
+        if(!Kernels.get().getName().startsWith(kernel)) {
+            throw new IllegalStateException("Kernel " + kernel
+                    + " was not chosen");
+        }
+
+        Random random = new Random(42);
+        data = new byte[size];
+
+        for(int i = 0; i < size; i++) {
+            data[i] = (byte) Math.min(255,
+                    Math.abs(random.nextGaussian()) * 64);
+        }
+
+        int[] expected = new int[Histogram.BYTES];
+        Histogram.count(data, 0, size, expected);
+
+        if(!Arrays.equals(expected, count())) {
+            throw new IllegalStateException(Kernels.get().getName()
+                    + " kernel does not match the scalar histogram");
+        }
+    }
+
+    /**
+     * @return counts
+     */
+    @Benchmark
+    public int[] count() {
+        return new OccurrenceCounter(data).getHistogram();
+    }
+
+    /**
+     * @throws IOException never, the sink drops everything
+     */
+    @Benchmark
+    public void stream() throws IOException {
+        HuffmanOutputStream out = new HuffmanOutputStream(SINK);
+        out.write(data);
+        out.close();
+    }
+
+    //
+    // Input bytes
+    //
+    private byte[] data;
+
+    //
+    // Compressed output goes nowhere
+    //
+    private static final OutputStream SINK = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+}
@@ -0,0 +1,167 @@
+/*
+ *  Copyright (C) 2016 Cezary Regec (SudoWaster)
+ * 
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package huffmancoding.Coders;
+
+import huffmancoding.Tree.AdaptiveHuffmanTree;
+
+/**
+ * A decoder for streams written by AdaptiveHuffmanEncoder. It walks the
+ * same adaptive tree bit by bit and updates it after every symbol.
+ *
+ * @author cezary
+ */
+public class AdaptiveHuffmanDecoder {
+
+    /**
+     * Create a decoder for symbols of a given amount of bits.
+     *
+     * @param symbolBits an int amount of bits per symbol, the same as used
+     *  by the encoder
+     */
+    public AdaptiveHuffmanDecoder(int symbolBits) {
+        this.symbolBits = symbolBits;
+        this.tree = new AdaptiveHuffmanTree(symbolBits);
+    }
+
+    /**
+     * Decode a whole stream written by AdaptiveHuffmanEncoder.encode(String).
+     *
+     * @param stream an encoded byte array
+     * @return a decoded String
+     */
+    public static String decode(byte[] stream) {
+        AdaptiveHuffmanDecoder decoder = new AdaptiveHuffmanDecoder(16);
+        BitReader reader = new BitReader(stream);
+        StringBuilder result = new StringBuilder(stream.length * 2);
+
+        for(int symbol = decoder.decode(reader); symbol >= 0;
+                symbol = decoder.decode(reader)) {
+            result.append((char) symbol);
+        }
+
+        return result.toString();
+    }
+
+    /**
+     * Decode a symbol and update the tree.
+     *
+     * @param reader a BitReader positioned at a code
+     * @return an int symbol, -1 at the end mark
+     */
+    public int decode(BitReader reader) {
+        if(ended) {
+            return -1;
+        }
+
+        //
+        // Walk down to a leaf
+        //
+        int node = tree.getRoot();
+
+        while(!tree.isLeaf(node)) {
+            if(reader.remaining() <= 0) {
+                throw new IllegalArgumentException(
+                        "Unexpected end of adaptive Huffman stream");
+            }
+
+            node = tree.getChild(node, reader.read(1));
+        }
+
+        int symbol = tree.getSymbol(node);
+
+        if(symbol == AdaptiveHuffmanTree.NYT) {
+            symbol = reader.read(symbolBits + 1);
+
+            if(symbol == 1 << symbolBits) {
+                ended = true;
+
+                return -1;
+            }
+
+            if(symbol > 1 << symbolBits) {
+                throw new IllegalArgumentException(
+                        "Corrupt adaptive Huffman stream");
+            }
+        }
+
+        tree.update(symbol);
+
+        return symbol;
+    }
+
+    /**
+     * Checks if the next symbol can be decoded from bits that have already
+     * arrived, so a stream reader knows when decoding would wait.
+     *
+     * @param reader a BitReader positioned at a code
+     * @return a boolean determining whether decode() won't wait
+     */
+    public boolean isReady(BitReader reader) {
+        long ready = reader.available();
+
+        if(ended || ready >= (1 << symbolBits) + symbolBits + 1) {
+            return true;
+        }
+
+        //
+        // Walk down without consuming anything, as far as the bits go
+        //
+        int count = (int) Math.min(ready, BitReader.MAX_PEEK);
+
+        if(count == 0) {
+            return false;
+        }
+
+        int bits = reader.peekReady(count);
+        int node = tree.getRoot();
+        int depth = 0;
+
+        while(!tree.isLeaf(node)) {
+            if(depth == count) {
+                return false;
+            }
+
+            depth++;
+            node = tree.getChild(node, (bits >>> (count - depth)) & 1);
+        }
+
+        return tree.getSymbol(node) != AdaptiveHuffmanTree.NYT
+                || depth + symbolBits + 1 <= ready;
+    }
+
+    /**
+     * Returns the tree shared by both sides.
+     *
+     * @return an AdaptiveHuffmanTree
+     */
+    public AdaptiveHuffmanTree getTree() {
+        return tree;
+    }
+
+    //
+    // Tree updated with every symbol
+    //
+    private final AdaptiveHuffmanTree tree;
+    private final int symbolBits;
+
+    //
+    // Whether the end mark has been read
+    //
+    private boolean ended;
+}
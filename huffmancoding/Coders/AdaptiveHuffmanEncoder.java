@@ -0,0 +1,137 @@
+/*
+ *  Copyright (C) 2016 Cezary Regec (SudoWaster)
+ * 
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package huffmancoding.Coders;
+
+import huffmancoding.Tree.AdaptiveHuffmanTree;
+
+/**
+ * A one-pass encoder using adaptive Huffman coding. There is no counting
+ * pass and no dictionary: every symbol is encoded with the current tree,
+ * then the tree is updated. New symbols are sent as the NYT code followed
+ * by the raw symbol. Use AdaptiveHuffmanDecoder with the same amount of
+ * symbol bits to decode.
+ *
+ * Raw symbols take one bit more than symbolBits, the value
+ * 1 << symbolBits marks the end of the stream.
+ *
+ * @author cezary
+ */
+public class AdaptiveHuffmanEncoder {
+
+    /**
+     * Create an encoder for symbols of a given amount of bits.
+     *
+     * @param symbolBits an int amount of bits per symbol, 8 for bytes and
+     *  16 for chars
+     */
+    public AdaptiveHuffmanEncoder(int symbolBits) {
+        this.symbolBits = symbolBits;
+        this.tree = new AdaptiveHuffmanTree(symbolBits);
+        this.path = new int[tree.getCapacity()];
+    }
+
+    /**
+     * Encode a String at once, end mark included.
+     *
+     * @param text a String with input
+     * @return an encoded byte array
+     */
+    public static byte[] encode(String text) {
+        AdaptiveHuffmanEncoder encoder = new AdaptiveHuffmanEncoder(16);
+        BitWriter writer = new BitWriter(text.length() / 2 + 8);
+
+        for(int i = 0; i < text.length(); i++) {
+            encoder.encode(text.charAt(i), writer);
+        }
+
+        encoder.end(writer);
+
+        return writer.toByteArray();
+    }
+
+    /**
+     * Encode a symbol and update the tree.
+     *
+     * @param symbol an int symbol smaller than 1 << symbolBits
+     * @param writer a BitWriter to write the code to
+     */
+    public void encode(int symbol, BitWriter writer) {
+        boolean isNew = !tree.contains(symbol);
+
+        writePath(tree.getPath(symbol, path), writer);
+
+        if(isNew) {
+            writer.write(symbol, symbolBits + 1);
+        }
+
+        tree.update(symbol);
+    }
+
+    /**
+     * Write the end mark and pad to a full byte. Nothing can be encoded
+     * afterwards.
+     *
+     * @param writer a BitWriter to write the mark to
+     */
+    public void end(BitWriter writer) {
+        writePath(tree.getPath(AdaptiveHuffmanTree.NYT, path), writer);
+        writer.write(1 << symbolBits, symbolBits + 1);
+        writer.flush();
+    }
+
+    /**
+     * Returns the tree shared by both sides.
+     *
+     * @return an AdaptiveHuffmanTree
+     */
+    public AdaptiveHuffmanTree getTree() {
+        return tree;
+    }
+
+    /**
+     * Packs path bits into writes of at most BitWriter.MAX_WRITE bits.
+     *
+     * @param length an int amount of path bits
+     * @param writer a BitWriter to write the path to
+     */
+    private void writePath(int length, BitWriter writer) {
+        for(int i = 0; i < length; ) {
+            int end = Math.min(length, i + BitWriter.MAX_WRITE);
+            long code = 0;
+
+            for(int j = i; j < end; j++) {
+                code = (code << 1) | path[j];
+            }
+
+            writer.write(code, end - i);
+            i = end;
+        }
+    }
+
+    //
+    // Tree updated with every symbol
+    //
+    private final AdaptiveHuffmanTree tree;
+    private final int symbolBits;
+
+    //
+    // Reused buffer for code bits
+    //
+    private final int[] path;
+}
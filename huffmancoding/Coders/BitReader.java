@@ -0,0 +1,346 @@
+/*
+ *  Copyright (C) 2016 Cezary Regec (SudoWaster)
+ * 
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package huffmancoding.Coders;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * A bit reader used by the decoders. Bytes are loaded into a left aligned
+ * long window, so that up to 32 bits can be looked at and consumed
+ * without touching the source array.
+ *
+ * @author cezary
+ */
+public class BitReader {
+
+    /**
+     * The most bits peek() can return at once
+     */
+    public static final int MAX_PEEK = 32;
+
+    /**
+     * Constructor reading a whole array.
+     *
+     * @param data a byte array to read
+     */
+    public BitReader(byte[] data) {
+        this(data, 0, data.length);
+    }
+
+    /**
+     * Constructor reading a part of an array.
+     *
+     * @param data a byte array to read
+     * @param offset an int first byte
+     * @param length an int amount of bytes
+     */
+    public BitReader(byte[] data, int offset, int length) {
+        this(data, offset, (long) length * 8);
+    }
+
+    /**
+     * Constructor reading an exact amount of bits from an array.
+     *
+     * @param data a byte array to read
+     * @param offset an int first byte
+     * @param bitLength a long amount of bits
+     */
+    public BitReader(byte[] data, int offset, long bitLength) {
+        this.data = data;
+        this.start = offset;
+        this.bitLength = bitLength;
+        this.limit = offset + (int) ((bitLength + 7) / 8);
+        this.position = offset;
+    }
+
+    /**
+     * Constructor reading a stream through a fixed size buffer. Bytes are
+     * read only when needed, so decoding can start before the whole
+     * stream has arrived. Stream errors are thrown as UncheckedIOException.
+     *
+     * @param source an InputStream to read
+     * @param bufferSize an int buffer size in bytes
+     */
+    public BitReader(InputStream source, int bufferSize) {
+        this.data = new byte[bufferSize];
+        this.source = source;
+        this.start = 0;
+        this.bitLength = Long.MAX_VALUE;
+        this.limit = 0;
+        this.position = 0;
+    }
+
+    /**
+     * Returns next bits without consuming them. Bits past the end are zeros.
+     * A stream is read only until there are enough bits.
+     *
+     * @param count an int amount of bits, at most MAX_PEEK
+     * @return an int with right aligned bits
+     */
+    public int peek(int count) {
+        if(available < count) {
+            fill(count, true);
+        }
+
+        return (int) (window >>> (64 - count));
+    }
+
+    /**
+     * Returns next bits without consuming them and without waiting for a
+     * stream. Bits that have not arrived yet are zeros, buffered() tells
+     * how many of the returned bits are real.
+     *
+     * @param count an int amount of bits, at most MAX_PEEK
+     * @return an int with right aligned bits
+     */
+    public int peekReady(int count) {
+        if(available < count) {
+            fill(count, false);
+        }
+
+        return (int) (window >>> (64 - count));
+    }
+
+    /**
+     * Returns the amount of bits already in the window. Past the end of the
+     * data the missing bits count as there.
+     *
+     * @return an int bit count
+     */
+    public int buffered() {
+        return available;
+    }
+
+    /**
+     * Returns the amount of bits that can be read without waiting for a
+     * stream.
+     *
+     * @return a long bit count
+     */
+    public long available() {
+        long bits = available + (long) (limit - position) * 8;
+
+        if(source != null) {
+            try {
+                bits += (long) source.available() * 8;
+            } catch(IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        return bits;
+    }
+
+    /**
+     * Consumes bits.
+     *
+     * @param count an int amount of bits, at most MAX_PEEK
+     */
+    public void skip(int count) {
+        if(available < count) {
+            fill(count, true);
+        }
+
+        window <<= count;
+        available -= count;
+        consumed += count;
+    }
+
+    /**
+     * Reads and consumes bits.
+     *
+     * @param count an int amount of bits, at most MAX_PEEK
+     * @return an int with right aligned bits
+     */
+    public int read(int count) {
+        int result = peek(count);
+        skip(count);
+
+        return result;
+    }
+
+    /**
+     * Returns the amount of bits left to read.
+     *
+     * @return a long bit count
+     */
+    public long remaining() {
+        return bitLength - consumed;
+    }
+
+    /**
+     * Returns the amount of bits read so far.
+     *
+     * @return a long bit position
+     */
+    public long getPosition() {
+        return consumed;
+    }
+
+    /**
+     * Moves to a bit position counted from the first byte.
+     *
+     * @param bitPosition a long bit position
+     */
+    public void seek(long bitPosition) {
+        if(source != null) {
+            throw new UnsupportedOperationException("Cannot seek a stream");
+        }
+
+        position = start + (int) (bitPosition / 8);
+        window = 0;
+        available = 0;
+        consumed = bitPosition - bitPosition % 8;
+
+        skip((int) (bitPosition % 8));
+    }
+
+    /**
+     * Starts reading another part of an array, so a single reader can go
+     * through many messages without being created again.
+     *
+     * @param data a byte array to read
+     * @param offset an int first byte
+     * @param length an int amount of bytes
+     */
+    public void reset(byte[] data, int offset, int length) {
+        this.data = data;
+        this.start = offset;
+        this.bitLength = (long) length * 8;
+        this.limit = offset + length;
+        this.position = offset;
+        this.source = null;
+        this.loaded = 0;
+        this.window = 0;
+        this.available = 0;
+        this.consumed = 0;
+    }
+
+    /**
+     * Skips the rest of the current byte.
+     */
+    public void alignToByte() {
+        skip((int) ((8 - consumed % 8) % 8));
+    }
+
+    /**
+     * Loads buffered bytes into the window, and reads the source only when
+     * they don't cover the request. Reading a stream that was flushed must
+     * not wait for bytes that will only come with the next write.
+     *
+     * @param count an int amount of bits needed
+     * @param wait a boolean determining whether to wait for a stream
+     */
+    private void fill(int count, boolean wait) {
+        while(true) {
+            while(available <= 56 && position < limit) {
+                window |= (long) (data[position++] & 0xFF)
+                        << (56 - available);
+                available += 8;
+            }
+
+            if(available >= count) {
+                return;
+            }
+
+            if(!wait && source != null && !ready()) {
+                return;
+            }
+
+            if(!load()) {
+                break;
+            }
+        }
+
+        //
+        // Past the end we pretend to have zeros
+        //
+        available = 64;
+    }
+
+    /**
+     * Checks if the source stream can be read without waiting.
+     *
+     * @return a boolean determining whether bytes are ready
+     */
+    private boolean ready() {
+        try {
+            return source.available() > 0;
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads the next part of the source stream into the buffer.
+     *
+     * @return a boolean determining whether any bytes were read
+     */
+    private boolean load() {
+        if(source == null) {
+            return false;
+        }
+
+        try {
+            int read = source.read(data, 0, data.length);
+
+            if(read < 0) {
+                //
+                // Now we know where the data ends
+                //
+                bitLength = loaded * 8;
+                source = null;
+
+                return false;
+            }
+
+            position = 0;
+            limit = read;
+            loaded += read;
+
+            return read > 0;
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    //
+    // Source array and its bounds
+    //
+    private byte[] data;
+    private int start;
+    private int limit;
+    private long bitLength;
+    private int position;
+
+    //
+    // Source stream, null for arrays and after the stream ended
+    //
+    private InputStream source;
+    private long loaded;
+
+    //
+    // Loaded bits, most significant first
+    //
+    private long window;
+    private int available;
+    private long consumed;
+}
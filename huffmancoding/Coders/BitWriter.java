@@ -0,0 +1,209 @@
+/*
+ *  Copyright (C) 2016 Cezary Regec (SudoWaster)
+ * 
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package huffmancoding.Coders;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A bit packer used by the encoders. Codes are shifted into a long
+ * accumulator and full bytes are moved to a growing byte array, most
+ * significant bit first - the same layout the String encoder produced.
+ *
+ * @author cezary
+ */
+public class BitWriter {
+
+    /**
+     * The longest code accepted by a single write() call
+     */
+    public static final int MAX_WRITE = 56;
+
+    /**
+     * Default constructor with a small initial buffer.
+     */
+    public BitWriter() {
+        this(64);
+    }
+
+    /**
+     * Constructor with an expected output size.
+     *
+     * @param capacity an int initial buffer size in bytes
+     */
+    public BitWriter(int capacity) {
+        this.buffer = new byte[Math.max(capacity, 8)];
+    }
+
+    /**
+     * Constructor writing straight into an array from a given position,
+     * so that parts encoded separately land in one array without copying.
+     * Bytes before the position are left alone, the array should have 8
+     * spare bytes at the end.
+     *
+     * @param destination a byte array to write to
+     * @param offset an int first byte to write
+     */
+    public BitWriter(byte[] destination, int offset) {
+        this.buffer = destination;
+        this.size = offset;
+    }
+
+    /**
+     * Appends code bits to the stream.
+     *
+     * @param code a long with right aligned code bits
+     * @param length an int amount of bits, at most MAX_WRITE
+     */
+    public void write(long code, int length) {
+        //
+        // Shift the code in, there are always less than 8 bits pending
+        //
+        accumulator = (accumulator << length) | code;
+        pending += length;
+
+        if(size + 8 > buffer.length) {
+            grow(size + 8);
+        }
+
+        //
+        // Move full bytes to the buffer
+        //
+        while(pending >= 8) {
+            pending -= 8;
+            buffer[size++] = (byte) (accumulator >>> pending);
+        }
+    }
+
+    /**
+     * Pads the last byte with zeros (shift left) so that the stream is
+     * byte aligned.
+     */
+    public void flush() {
+        if(pending > 0) {
+            write(0, 8 - pending);
+        }
+    }
+
+    /**
+     * Returns the amount of bits written so far.
+     *
+     * @return a long bit count
+     */
+    public long getBitLength() {
+        return (long) size * 8 + pending;
+    }
+
+    /**
+     * Returns the amount of full bytes written so far.
+     *
+     * @return an int byte count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns a copy of written bytes. Call flush() first to include
+     * the pending bits.
+     *
+     * @return a byte array
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+
+    /**
+     * Puts written bytes into a ByteBuffer. Call flush() first to include
+     * the pending bits.
+     *
+     * @param destination a ByteBuffer with enough space left
+     */
+    public void writeTo(ByteBuffer destination) {
+        destination.put(buffer, 0, size);
+    }
+
+    /**
+     * Copies written bytes to an array. Call flush() first to include
+     * the pending bits.
+     *
+     * @param destination a byte array with size() bytes of space
+     * @param offset an int first position
+     */
+    public void writeTo(byte[] destination, int offset) {
+        System.arraycopy(buffer, 0, destination, offset, size);
+    }
+
+    /**
+     * Writes written bytes to a stream. Call flush() first to include
+     * the pending bits.
+     *
+     * @param destination an OutputStream
+     * @throws IOException when the stream fails
+     */
+    public void writeTo(OutputStream destination) throws IOException {
+        destination.write(buffer, 0, size);
+    }
+
+    /**
+     * Write the full bytes to an OutputStream and drop them from the
+     * buffer. Bits not filling a byte yet stay in the writer, so a stream
+     * can be written out piece by piece without padding.
+     *
+     * @param destination an OutputStream
+     * @throws IOException when the stream fails
+     */
+    public void drainTo(OutputStream destination) throws IOException {
+        destination.write(buffer, 0, size);
+        size = 0;
+    }
+
+    /**
+     * Clears the writer keeping its buffer for reuse.
+     */
+    public void reset() {
+        size = 0;
+        pending = 0;
+        accumulator = 0;
+    }
+
+    /**
+     * Makes the buffer at least of a given size.
+     *
+     * @param minimum an int required capacity
+     */
+    private void grow(int minimum) {
+        buffer = Arrays.copyOf(buffer,
+                Math.max(minimum, buffer.length + (buffer.length >> 1)));
+    }
+
+    //
+    // Output bytes
+    //
+    private byte[] buffer;
+    private int size;
+
+    //
+    // Bits not yet moved to the buffer
+    //
+    private long accumulator;
+    private int pending;
+}
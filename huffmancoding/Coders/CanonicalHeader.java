@@ -0,0 +1,173 @@
+/*
+ *  Copyright (C) 2016 Cezary Regec (SudoWaster)
+ * 
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package huffmancoding.Coders;
+
+import huffmancoding.Tree.CanonicalCode;
+import huffmancoding.Tree.CodeTable;
+import java.util.Arrays;
+
+/**
+ * Reads and writes the canonical dictionary (header). Since canonical codes
+ * depend only on lengths, the header holds the amount of codes of every
+ * length and the symbols in canonical order:
+ *  8 bits for the longest code length
+ *
+ * for every length from 1 to the longest:
+ *  symbol bits + 1 for the amount of codes of this length
+ *
+ * for every symbol in canonical order:
+ *  symbol bits for the symbol
+ *
+ * The header is padded to a full byte.
+ *
+ * @author cezary
+ */
+public class CanonicalHeader {
+
+    /**
+     * Writes a canonical table as a header.
+     *
+     * @param writer a BitWriter to write to
+     * @param table a CodeTable in canonical order
+     * @param symbolBits an int amount of bits per symbol
+     */
+    public static void write(BitWriter writer, CodeTable table,
+            int symbolBits) {
+        int maxLength = table.getMaxLength();
+
+        //
+        // Count codes of every length
+        //
+        int[] counts = new int[maxLength + 1];
+        int[] symbols = new int[table.size()];
+
+        for(int i = 0; i < table.size(); i++) {
+            symbols[i] = table.getSymbol(i);
+            counts[table.getLength(symbols[i])]++;
+        }
+
+        write(writer, counts, maxLength, symbols, symbols.length,
+                symbolBits);
+    }
+
+    /**
+     * Writes a header from the amount of codes of every length and the
+     * symbols, for callers keeping codes in their own arrays.
+     *
+     * @param writer a BitWriter to write to
+     * @param counts an int array with the amount of codes of every length
+     * @param maxLength an int longest code length
+     * @param symbols an int array of symbols in canonical order
+     * @param size an int amount of symbols
+     * @param symbolBits an int amount of bits per symbol
+     */
+    public static void write(BitWriter writer, int[] counts, int maxLength,
+            int[] symbols, int size, int symbolBits) {
+        writer.write(maxLength, 8);
+
+        for(int length = 1; length <= maxLength; length++) {
+            writer.write(counts[length], symbolBits + 1);
+        }
+
+        long mask = (1L << symbolBits) - 1;
+
+        for(int i = 0; i < size; i++) {
+            writer.write(symbols[i] & mask, symbolBits);
+        }
+
+        writer.flush();
+    }
+
+    /**
+     * Reads a header and rebuilds canonical codes.
+     *
+     * @param reader a BitReader positioned at the header
+     * @param symbolBits an int amount of bits per symbol
+     * @return a CodeTable with canonical codes
+     */
+    public static CodeTable read(BitReader reader, int symbolBits) {
+        int[] counts = new int[256];
+        int maxLength = readCounts(reader, symbolBits, counts);
+        int total = 0;
+
+        for(int length = 1; length <= maxLength; length++) {
+            total += counts[length];
+        }
+
+        //
+        // Read the symbols, their lengths follow from the counts
+        //
+        int[] symbols = new int[total];
+        int[] lengths = new int[total];
+
+        readSymbols(reader, symbolBits, symbols, total);
+
+        for(int length = 1, i = 0; length <= maxLength; length++) {
+            for(int j = 0; j < counts[length]; j++) {
+                lengths[i++] = length;
+            }
+        }
+
+        return CanonicalCode.create(symbols, lengths);
+    }
+
+    /**
+     * Reads the first part of a header, the amount of codes of every
+     * length.
+     *
+     * @param reader a BitReader positioned at the header
+     * @param symbolBits an int amount of bits per symbol
+     * @param counts an int array to put the amounts in, indexed by length
+     * @return an int longest code length
+     */
+    public static int readCounts(BitReader reader, int symbolBits,
+            int[] counts) {
+        int maxLength = reader.read(8);
+
+        if(maxLength >= counts.length) {
+            throw new IllegalArgumentException("Invalid code length "
+                    + maxLength);
+        }
+
+        Arrays.fill(counts, 0);
+
+        for(int length = 1; length <= maxLength; length++) {
+            counts[length] = reader.read(symbolBits + 1);
+        }
+
+        return maxLength;
+    }
+
+    /**
+     * Reads the rest of a header, the symbols in canonical order.
+     *
+     * @param reader a BitReader positioned after the counts
+     * @param symbolBits an int amount of bits per symbol
+     * @param symbols an int array to put the symbols in
+     * @param size an int amount of symbols, the sum of the counts
+     */
+    public static void readSymbols(BitReader reader, int symbolBits,
+            int[] symbols, int size) {
+        for(int i = 0; i < size; i++) {
+            symbols[i] = reader.read(symbolBits);
+        }
+
+        reader.alignToByte();
+    }
+}
@@ -0,0 +1,313 @@
+/*
+ *  Copyright (C) 2016 Cezary Regec (SudoWaster)
+ * 
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package huffmancoding.Coders;
+
+import huffmancoding.Tree.CanonicalCode;
+import huffmancoding.Tree.CodeTable;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded cache of codes for similar histograms. A histogram is reduced
+ * to a fingerprint - the set of symbols that occur, with every symbol's
+ * share of the total rounded down to a whole bit of ideal code length.
+ * Histograms with the same fingerprint would get nearly the same codes, so
+ * the codes made for the first one are reused without building a tree.
+ *
+ * The cache is split into stripes, each one an LRU map behind its own
+ * lock, so threads looking up different fingerprints rarely wait for
+ * each other. The capacity is split across the stripes exactly, a cache
+ * smaller than STRIPES uses fewer stripes so that each holds at least one
+ * code. Hits, misses and evictions are counted.
+ *
+ * @author cezary
+ */
+public class CodeTableCache {
+
+    /**
+     * Most independently locked parts
+     */
+    public static final int STRIPES = 16;
+
+    /**
+     * Create a cache of a given size.
+     *
+     * @param capacity an int maximum amount of cached codes
+     * @param maxLength an int longest allowed code
+     */
+    public CodeTableCache(int capacity, int maxLength) {
+        if(capacity < 1) {
+            throw new IllegalArgumentException("Capacity " + capacity
+                    + " is not positive");
+        }
+
+        this.maxLength = maxLength;
+
+        //
+        // A power of two of stripes, no more than the capacity
+        //
+        int count = Integer.highestOneBit(Math.min(capacity, STRIPES));
+        this.stripes = new Stripe[count];
+
+        //
+        // Spread the capacity, the first stripes take the remainder
+        //
+        for(int i = 0; i < count; i++) {
+            stripes[i] = new Stripe((capacity + count - 1 - i) / count);
+        }
+    }
+
+    /**
+     * Returns codes for a histogram, made on the first use of its
+     * fingerprint.
+     *
+     * @param counts an int array of counts indexed by symbol
+     * @return a Codes with a code for every symbol that occurs
+     */
+    public Codes get(int[] counts) {
+        Key key = new Key(counts);
+        Stripe stripe = stripes[(key.hash ^ (key.hash >>> 16))
+                & (stripes.length - 1)];
+
+        Codes codes;
+
+        synchronized(stripe) {
+            codes = stripe.get(key);
+        }
+
+        if(codes != null) {
+            hits.incrementAndGet();
+
+            return codes;
+        }
+
+        misses.incrementAndGet();
+
+        //
+        // Build outside of the lock, a race only builds twice
+        //
+        Codes built = new Codes(CanonicalCode.create(counts, maxLength));
+
+        synchronized(stripe) {
+            codes = stripe.get(key);
+
+            if(codes == null) {
+                stripe.put(key, built);
+                codes = built;
+            }
+        }
+
+        return codes;
+    }
+
+    /**
+     * Returns the amount of lookups that found codes.
+     *
+     * @return a long amount
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the amount of lookups that had to make codes.
+     *
+     * @return a long amount
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the amount of codes dropped to make space.
+     *
+     * @return a long amount
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Returns the amount of cached codes.
+     *
+     * @return an int amount
+     */
+    public int size() {
+        int size = 0;
+
+        for(Stripe stripe : stripes) {
+            synchronized(stripe) {
+                size += stripe.size();
+            }
+        }
+
+        return size;
+    }
+
+    /**
+     * Returns the longest code made by the cache.
+     *
+     * @return an int code length
+     */
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    /**
+     * Cached codes, with a decode table made on first use.
+     */
+    public static class Codes {
+
+        /**
+         * Wrap a code table.
+         *
+         * @param table a CodeTable
+         */
+        Codes(CodeTable table) {
+            this.table = table;
+        }
+
+        /**
+         * Returns the codes.
+         *
+         * @return a CodeTable
+         */
+        public CodeTable getCodeTable() {
+            return table;
+        }
+
+        /**
+         * Returns a decode table of the codes. Tables made by racing
+         * threads are the same, so any of them will do.
+         *
+         * @return a DecodeTable
+         */
+        public DecodeTable getDecodeTable() {
+            DecodeTable result = decodeTable;
+
+            if(result == null) {
+                result = new DecodeTable(table);
+                decodeTable = result;
+            }
+
+            return result;
+        }
+
+        private final CodeTable table;
+        private volatile DecodeTable decodeTable;
+    }
+
+    /**
+     * A quantized histogram - symbols that occur with their levels.
+     */
+    private static class Key {
+
+        /**
+         * Make a fingerprint of a histogram.
+         *
+         * @param counts an int array of counts indexed by symbol
+         */
+        Key(int[] counts) {
+            long total = 0;
+            int found = 0;
+
+            for(int count : counts) {
+                if(count > 0) {
+                    total += count;
+                    found++;
+                }
+            }
+
+            //
+            // Level is the ideal code length, rounded down
+            //
+            parts = new int[found];
+
+            for(int symbol = 0, i = 0; i < found; symbol++) {
+                if(counts[symbol] > 0) {
+                    int level = 63 - Long.numberOfLeadingZeros(
+                            total / counts[symbol]);
+
+                    parts[i++] = (symbol << 8) | Math.min(level, 0xFF);
+                }
+            }
+
+            hash = Arrays.hashCode(parts);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key && ((Key) other).hash == hash
+                    && Arrays.equals(((Key) other).parts, parts);
+        }
+
+        private final int[] parts;
+        private final int hash;
+    }
+
+    /**
+     * A part of the cache, an LRU map.
+     */
+    private class Stripe extends LinkedHashMap<Key, Codes> {
+
+        /**
+         * Create an empty stripe.
+         *
+         * @param capacity an int maximum amount of codes
+         */
+        Stripe(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Codes> eldest) {
+            if(size() > capacity) {
+                evictions.incrementAndGet();
+
+                return true;
+            }
+
+            return false;
+        }
+
+        private static final long serialVersionUID = 1L;
+        private final int capacity;
+    }
+
+    //
+    // Cached codes
+    //
+    private final Stripe[] stripes;
+    private final int maxLength;
+
+    //
+    // Metrics
+    //
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+}
@@ -0,0 +1,169 @@
+/*
+ *  Copyright (C) 2016 Cezary Regec (SudoWaster)
+ * 
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package huffmancoding.Coders;
+
+import huffmancoding.Tree.CanonicalCode;
+import huffmancoding.Tree.CodeTable;
+import java.util.Arrays;
+
+/**
+ * Reads and writes a compact dictionary (header) for large and sparse
+ * alphabets, such as Unicode code points. Symbols are stored in ascending
+ * order as gaps from the previous symbol, and code lengths in the same
+ * order as runs of equal lengths. Numbers are Elias gamma codes, so
+ * a dense range of symbols costs a bit per symbol.
+ *
+ * It has a following form:
+ *  gamma code of the amount of symbols + 1
+ *
+ * for every symbol in ascending order:
+ *  gamma code of the gap from the previous symbol (the first one from -1)
+ *
+ * for every run of equal code lengths:
+ *  6 bits for the code length
+ *  gamma code of the run length
+ *
+ * The header is padded to a full byte.
+ *
+ * @author cezary
+ */
+public class CompactHeader {
+
+    /**
+     * Writes a table as a compact header.
+     *
+     * @param writer a BitWriter to write to
+     * @param table a CodeTable
+     */
+    public static void write(BitWriter writer, CodeTable table) {
+        int count = table.size();
+
+        //
+        // Get symbols in ascending order
+        //
+        int[] symbols = new int[count];
+
+        for(int i = 0; i < count; i++) {
+            symbols[i] = table.getSymbol(i);
+        }
+
+        Arrays.sort(symbols);
+
+        writeGamma(writer, count + 1);
+
+        int previous = -1;
+
+        for(int symbol : symbols) {
+            writeGamma(writer, symbol - previous);
+            previous = symbol;
+        }
+
+        //
+        // Code lengths in the same order, as runs
+        //
+        for(int i = 0; i < count; ) {
+            int length = table.getLength(symbols[i]);
+            int run = 1;
+
+            while(i + run < count
+                    && table.getLength(symbols[i + run]) == length) {
+                run++;
+            }
+
+            writer.write(length, 6);
+            writeGamma(writer, run);
+
+            i += run;
+        }
+
+        writer.flush();
+    }
+
+    /**
+     * Reads a compact header and rebuilds canonical codes.
+     *
+     * @param reader a BitReader positioned at the header
+     * @return a CodeTable with canonical codes
+     */
+    public static CodeTable read(BitReader reader) {
+        int count = readGamma(reader) - 1;
+
+        int[] symbols = new int[count];
+        int[] lengths = new int[count];
+
+        int previous = -1;
+
+        for(int i = 0; i < count; i++) {
+            symbols[i] = previous + readGamma(reader);
+            previous = symbols[i];
+        }
+
+        for(int i = 0; i < count; ) {
+            int length = reader.read(6);
+            int run = readGamma(reader);
+
+            if(run > count - i) {
+                throw new IllegalArgumentException("Corrupt compact header");
+            }
+
+            Arrays.fill(lengths, i, i + run, length);
+            i += run;
+        }
+
+        reader.alignToByte();
+
+        return CanonicalCode.create(symbols, lengths);
+    }
+
+    /**
+     * Writes an Elias gamma code - as many zeros as the number has bits
+     * after the first one, then the number.
+     *
+     * @param writer a BitWriter to write to
+     * @param value an int number, at least 1
+     */
+    static void writeGamma(BitWriter writer, int value) {
+        int bits = 32 - Integer.numberOfLeadingZeros(value);
+
+        writer.write(value, 2 * bits - 1);
+    }
+
+    /**
+     * Reads an Elias gamma code.
+     *
+     * @param reader a BitReader to read from
+     * @return an int number
+     */
+    static int readGamma(BitReader reader) {
+        int zeros = 0;
+
+        while(reader.read(1) == 0) {
+            zeros++;
+
+            if(zeros > 31) {
+                throw new IllegalArgumentException("Corrupt compact header");
+            }
+        }
+
+        //
+        // The first bit is already read
+        //
+        return zeros == 0 ? 1 : (1 << zeros) | reader.read(zeros);
+    }
+}
@@ -0,0 +1,346 @@
+/*
+ *  Copyright (C) 2016 Cezary Regec (SudoWaster)
+ * 
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package huffmancoding.Coders;
+
+import huffmancoding.Tree.CodeTable;
+import java.util.Arrays;
+
+/**
+ * A lookup table decoder. The first ROOT_BITS bits of a code index the root
+ * table, which resolves every code of that length or shorter in one probe.
+ * Longer codes point to secondary tables indexed by the following bits.
+ *
+ * Every entry is an int:
+ *  bits 8-28 - a symbol (or a secondary table offset)
+ *  bits 0-7 - bits to consume at this level (or a secondary table width)
+ *  bit 30 - set for secondary table pointers
+ *
+ * @author cezary
+ */
+public class DecodeTable {
+
+    /**
+     * Bits resolved by a single table level
+     */
+    public static final int ROOT_BITS = 10;
+
+    /**
+     * Create a decode table with codes from a CodeTable.
+     *
+     * @param codes a CodeTable to invert
+     */
+    public DecodeTable(CodeTable codes) {
+        //
+        // Gather codes into parallel arrays
+        //
+        int size = codes.size();
+        int[] symbols = new int[size];
+        long[] bits = new long[size];
+        int[] lengths = new int[size];
+        int[] subset = new int[size];
+
+        for(int i = 0; i < size; i++) {
+            symbols[i] = codes.getSymbol(i);
+            bits[i] = codes.getCode(symbols[i]);
+            lengths[i] = codes.getLength(symbols[i]);
+            subset[i] = i;
+        }
+
+        table = new int[1 << ROOT_BITS];
+        rootWidth = build(symbols, bits, lengths, subset, size, 0);
+    }
+
+    /**
+     * Decode a single symbol.
+     *
+     * @param reader a BitReader to take bits from
+     * @return an int symbol, -1 if the stream ended or the code is unknown
+     */
+    public int decode(BitReader reader) {
+        int width = rootWidth;
+        int entry = lookup(reader, 0, width);
+
+        //
+        // Go down the secondary tables
+        //
+        while((entry & SUBTABLE) != 0) {
+            if(reader.remaining() < width) {
+                return -1;
+            }
+
+            reader.skip(width);
+
+            width = entry & LENGTH_MASK;
+            entry = lookup(reader, (entry & ~SUBTABLE) >>> 8, width);
+        }
+
+        int length = entry & LENGTH_MASK;
+
+        if(length == 0 || reader.remaining() < length) {
+            return -1;
+        }
+
+        reader.skip(length);
+
+        return entry >>> 8;
+    }
+
+    /**
+     * Looks up the next bits in a table. The table is wider than most
+     * codes, so the bits are peeked without waiting for a stream and only
+     * the ones the found code really uses are waited for.
+     *
+     * @param reader a BitReader to take bits from
+     * @param base an int first entry of the table
+     * @param width an int amount of bits indexing the table
+     * @return an int entry
+     */
+    private int lookup(BitReader reader, int base, int width) {
+        int entry = table[base + reader.peekReady(width)];
+
+        for(int needed = needed(entry, width); needed > reader.buffered();
+                needed = needed(entry, width)) {
+            //
+            // Bits that have not arrived were taken as zeros
+            //
+            reader.peek(needed);
+            entry = table[base + reader.peekReady(width)];
+        }
+
+        return entry;
+    }
+
+    /**
+     * Returns the amount of bits an entry was found by.
+     *
+     * @param entry an int entry
+     * @param width an int amount of bits indexing the table
+     * @return an int bit count
+     */
+    private static int needed(int entry, int width) {
+        int length = entry & LENGTH_MASK;
+
+        return (entry & SUBTABLE) != 0 || length == 0 ? width : length;
+    }
+
+    /**
+     * Decode symbols as chars until the destination is full or the stream
+     * ends.
+     *
+     * @param reader a BitReader to take bits from
+     * @param destination a char array
+     * @param offset an int first position in the destination
+     * @param count an int maximum amount of symbols
+     * @return an int amount of decoded symbols
+     */
+    public int decode(BitReader reader, char[] destination, int offset,
+            int count) {
+        for(int i = 0; i < count; i++) {
+            int symbol = decode(reader);
+
+            if(symbol < 0) {
+                return i;
+            }
+
+            destination[offset + i] = (char) symbol;
+        }
+
+        return count;
+    }
+
+    /**
+     * Decode symbols as bytes until the destination is full or the stream
+     * ends.
+     *
+     * @param reader a BitReader to take bits from
+     * @param destination a byte array
+     * @param offset an int first position in the destination
+     * @param count an int maximum amount of symbols
+     * @return an int amount of decoded symbols
+     */
+    public int decode(BitReader reader, byte[] destination, int offset,
+            int count) {
+        for(int i = 0; i < count; i++) {
+            int symbol = decode(reader);
+
+            if(symbol < 0) {
+                return i;
+            }
+
+            destination[offset + i] = (byte) symbol;
+        }
+
+        return count;
+    }
+
+    /**
+     * Decode a whole stream as chars.
+     *
+     * @param reader a BitReader to take bits from
+     * @return a decoded char array
+     */
+    public char[] decodeAll(BitReader reader) {
+        char[] result = new char[64];
+        int size = 0;
+
+        //
+        // Decode until the stream ends, growing the result when full
+        //
+        while(true) {
+            size += decode(reader, result, size, result.length - size);
+
+            if(size < result.length) {
+                return Arrays.copyOf(result, size);
+            }
+
+            result = Arrays.copyOf(result, result.length * 2);
+        }
+    }
+
+    /**
+     * Fills a table level for a subset of codes sharing the first
+     * consumed bits.
+     *
+     * @param symbols an int array of all symbols
+     * @param bits a long array of all codes
+     * @param lengths an int array of all code lengths
+     * @param subset an int array of indexes belonging to this level
+     * @param count an int amount of indexes in the subset
+     * @param consumed an int amount of bits resolved by upper levels
+     * @return an int width of the level, it starts at the current offset
+     */
+    private int build(int[] symbols, long[] bits, int[] lengths,
+            int[] subset, int count, int consumed) {
+        //
+        // The level is only as wide as its longest code needs
+        //
+        int longest = 1;
+
+        for(int i = 0; i < count; i++) {
+            longest = Math.max(longest, lengths[subset[i]] - consumed);
+        }
+
+        int width = Math.min(longest, ROOT_BITS);
+        int base = allocate(1 << width);
+
+        //
+        // Short codes fill a range of entries, long codes are grouped by
+        // their next width bits
+        //
+        int[] groups = new int[1 << width];
+
+        for(int i = 0; i < count; i++) {
+            int index = subset[i];
+            int rest = lengths[index] - consumed;
+
+            if(rest <= width) {
+                int first = (int) (bits[index] << (width - rest))
+                        & ((1 << width) - 1);
+
+                Arrays.fill(table, base + first,
+                        base + first + (1 << (width - rest)),
+                        (symbols[index] << 8) | rest);
+            } else {
+                groups[prefix(bits[index], rest, width)]++;
+            }
+        }
+
+        //
+        // Sort long codes by group, then build a secondary level for
+        // every group
+        //
+        int[] starts = new int[groups.length + 1];
+
+        for(int group = 0; group < groups.length; group++) {
+            starts[group + 1] = starts[group] + groups[group];
+        }
+
+        int[] children = new int[starts[groups.length]];
+
+        for(int i = 0; i < count; i++) {
+            int index = subset[i];
+            int rest = lengths[index] - consumed;
+
+            if(rest > width) {
+                int group = prefix(bits[index], rest, width);
+                children[starts[group] + --groups[group]] = index;
+            }
+        }
+
+        for(int group = 0; group < groups.length; group++) {
+            int size = starts[group + 1] - starts[group];
+
+            if(size == 0) {
+                continue;
+            }
+
+            int offset = used;
+            int childWidth = build(symbols, bits, lengths,
+                    Arrays.copyOfRange(children, starts[group],
+                            starts[group + 1]), size, consumed + width);
+
+            table[base + group] = SUBTABLE | (offset << 8) | childWidth;
+        }
+
+        return width;
+    }
+
+    /**
+     * Returns the first width bits of a code with rest bits left.
+     *
+     * @param code a long code
+     * @param rest an int amount of meaningful low bits
+     * @param width an int amount of bits to take
+     * @return an int prefix
+     */
+    private static int prefix(long code, int rest, int width) {
+        return (int) (code >>> (rest - width)) & ((1 << width) - 1);
+    }
+
+    /**
+     * Reserves entries at the end of the table.
+     *
+     * @param entries an int amount of entries
+     * @return an int offset of the first one
+     */
+    private int allocate(int entries) {
+        if(used + entries > table.length) {
+            table = Arrays.copyOf(table,
+                    Math.max(used + entries, table.length * 2));
+        }
+
+        int offset = used;
+        used += entries;
+
+        return offset;
+    }
+
+    //
+    // Entry packing
+    //
+    private static final int SUBTABLE = 1 << 30;
+    private static final int LENGTH_MASK = 0xFF;
+
+    //
+    // All levels in a single array, the root level comes first
+    //
+    private int[] table;
+    private int used;
+    private final int rootWidth;
+}
@@ -0,0 +1,582 @@
+/*
+ *  Copyright (C) 2016 Cezary Regec (SudoWaster)
+ * 
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package huffmancoding.Coders;
+
+import huffmancoding.TextTools.Histogram;
+import huffmancoding.Tree.CanonicalCode;
+import huffmancoding.Tree.CodeTable;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A reusable byte codec for many small messages. Counters, code tables,
+ * the decode table and the bit buffers are kept between calls, so once
+ * the buffers have grown to the biggest message no call allocates.
+ *
+ * Every message is written like a HuffmanOutputStream block:
+ *  32 bits for the amount of bytes
+ *  a CanonicalHeader with 8 bit symbols
+ *  codes of the bytes, padded to a full byte
+ *
+ * A codec made with a byte HuffmanDictionary leaves the header out and
+ * uses the dictionary's codes, which are read only and shared by every
+ * codec made with it.
+ *
+ * A codec is not thread safe, every thread needs its own - concurrent
+ * users can borrow them from a HuffmanCodecPool.
+ *
+ * @author cezary
+ */
+public class HuffmanByteCodec {
+
+    /**
+     * The longest code a codec can use, keeps the decode table at 32K
+     * entries
+     */
+    public static final int MAX_LENGTH = 15;
+
+    /**
+     * The most bytes a header (with the message size) takes
+     */
+    public static final int MAX_HEADER = 4 + 1 + (MAX_LENGTH * 9 + 7) / 8
+            + Histogram.BYTES;
+
+    /**
+     * Create a codec with the longest allowed code.
+     */
+    public HuffmanByteCodec() {
+        this(MAX_LENGTH);
+    }
+
+    /**
+     * Create a codec with a code length limit.
+     *
+     * @param maxLength an int longest allowed code, 8 to MAX_LENGTH
+     */
+    public HuffmanByteCodec(int maxLength) {
+        if(maxLength < 8 || maxLength > MAX_LENGTH) {
+            throw new IllegalArgumentException("Code length limit "
+                    + maxLength + " is not between 8 and " + MAX_LENGTH);
+        }
+
+        this.maxLength = maxLength;
+        this.dictionary = null;
+    }
+
+    /**
+     * Create a codec using the codes of a byte dictionary for every
+     * message.
+     *
+     * @param dictionary a HuffmanDictionary with 8 bit symbols and codes
+     *  of at most MAX_LENGTH bits
+     */
+    public HuffmanByteCodec(HuffmanDictionary dictionary) {
+        if(dictionary.getSymbolBits() != 8) {
+            throw new IllegalArgumentException("Dictionary "
+                    + dictionary.getId() + " has "
+                    + dictionary.getSymbolBits() + " bit symbols, not 8");
+        }
+
+        if(dictionary.getCodeTable().getMaxLength() > MAX_LENGTH) {
+            throw new IllegalArgumentException("Dictionary "
+                    + dictionary.getId() + " has codes longer than "
+                    + MAX_LENGTH + " bits");
+        }
+
+        this.maxLength = dictionary.getCodeTable().getMaxLength();
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Returns the most bytes a message of a given size can be encoded to.
+     *
+     * @param length an int amount of bytes
+     * @return an int amount of encoded bytes
+     */
+    public static int maxEncodedLength(int length) {
+        return MAX_HEADER + (int) (((long) length * MAX_LENGTH + 7) / 8);
+    }
+
+    /**
+     * Encodes a message into an array.
+     *
+     * @param source a byte array with the message
+     * @param offset an int first position of the message
+     * @param length an int amount of bytes
+     * @param destination a byte array for the encoded message
+     * @param destinationOffset an int first position to write at
+     * @return an int amount of bytes written
+     */
+    public int encode(byte[] source, int offset, int length,
+            byte[] destination, int destinationOffset) {
+        reset();
+
+        if(dictionary != null) {
+            writer.write(length, 32);
+            encode(dictionary.getCodeTable(), source, offset, length);
+
+            return writeTo(destination, destinationOffset);
+        }
+
+        //
+        // Messages are short, a single table is enough and Histogram
+        // would allocate its interleaved ones
+        //
+        for(int i = offset; i < offset + length; i++) {
+            counts[source[i] & 0xFF]++;
+        }
+
+        makeCodes();
+
+        //
+        // Header, then codes
+        //
+        writer.write(length, 32);
+        writeHeader();
+
+        for(int i = offset; i < offset + length; i++) {
+            int symbol = source[i] & 0xFF;
+
+            writer.write(codes[symbol], lengths[symbol]);
+        }
+
+        writer.flush();
+
+        return writeTo(destination, destinationOffset);
+    }
+
+    /**
+     * Returns the amount of bytes a message decodes to.
+     *
+     * @param source a byte array with an encoded message
+     * @param offset an int first position of the message
+     * @return an int amount of bytes
+     */
+    public static int getDecodedLength(byte[] source, int offset) {
+        return (source[offset] & 0xFF) << 24
+                | (source[offset + 1] & 0xFF) << 16
+                | (source[offset + 2] & 0xFF) << 8
+                | (source[offset + 3] & 0xFF);
+    }
+
+    /**
+     * Decodes a message into an array.
+     *
+     * @param source a byte array with an encoded message
+     * @param offset an int first position of the message
+     * @param length an int amount of encoded bytes
+     * @param destination a byte array for the message
+     * @param destinationOffset an int first position to write at
+     * @return an int amount of bytes written
+     */
+    public int decode(byte[] source, int offset, int length,
+            byte[] destination, int destinationOffset) {
+        reset();
+        reader.reset(source, offset, length);
+
+        int size = reader.read(16) << 16 | reader.read(16);
+
+        if(size < 0 || size > destination.length - destinationOffset) {
+            throw new IllegalArgumentException("Destination has "
+                    + (destination.length - destinationOffset)
+                    + " bytes left, " + size + " needed");
+        }
+
+        if(size == 0) {
+            return 0;
+        }
+
+        if(dictionary != null) {
+            if(dictionary.getDecodeTable().decode(reader, destination,
+                    destinationOffset, size) < size) {
+                throw new IllegalArgumentException("Message is truncated");
+            }
+
+            return size;
+        }
+
+        int longest = readHeader();
+
+        for(int i = destinationOffset; i < destinationOffset + size; i++) {
+            int entry = table[reader.peek(longest)];
+
+            if(entry == 0) {
+                throw new IllegalArgumentException("Invalid code at bit "
+                        + reader.getPosition());
+            }
+
+            reader.skip(entry & 0xFF);
+            destination[i] = (byte) (entry >>> 8);
+        }
+
+        if(reader.remaining() < 0) {
+            throw new IllegalArgumentException("Message is truncated");
+        }
+
+        return size;
+    }
+
+    /**
+     * Returns the longest code the codec uses.
+     *
+     * @return an int length
+     */
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    /**
+     * Returns the dictionary the codec uses.
+     *
+     * @return a HuffmanDictionary, null if every message has its own codes
+     */
+    public HuffmanDictionary getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Forgets the last message. Buffers are kept for the next one.
+     */
+    public void reset() {
+        Arrays.fill(counts, 0);
+        Arrays.fill(lengths, 0);
+        Arrays.fill(lengthCounts, 0);
+        symbolCount = 0;
+        writer.reset();
+    }
+
+    /**
+     * Writes codes of a message with a shared table.
+     *
+     * @param table a CodeTable with a code for every byte
+     * @param source a byte array with the message
+     * @param offset an int first position of the message
+     * @param length an int amount of bytes
+     */
+    private void encode(CodeTable table, byte[] source, int offset,
+            int length) {
+        for(int i = offset; i < offset + length; i++) {
+            long entry = table.getEntry(source[i] & 0xFF);
+
+            writer.write(CodeTable.code(entry), CodeTable.length(entry));
+        }
+
+        writer.flush();
+    }
+
+    /**
+     * Copies the written message out.
+     *
+     * @param destination a byte array for the encoded message
+     * @param destinationOffset an int first position to write at
+     * @return an int amount of bytes written
+     */
+    private int writeTo(byte[] destination, int destinationOffset) {
+        if(writer.size() > destination.length - destinationOffset) {
+            throw new IllegalArgumentException("Destination has "
+                    + (destination.length - destinationOffset)
+                    + " bytes left, " + writer.size() + " needed");
+        }
+
+        writer.writeTo(destination, destinationOffset);
+
+        return writer.size();
+    }
+
+    /**
+     * Makes canonical codes for the counted bytes.
+     */
+    private void makeCodes() {
+        //
+        // Sort symbols that occur by count, packed with the symbol so a
+        // primitive sort does the job
+        //
+        int found = 0;
+
+        for(int symbol = 0; symbol < Histogram.BYTES; symbol++) {
+            if(counts[symbol] > 0) {
+                order[found++] = (long) counts[symbol] << 8 | symbol;
+            }
+        }
+
+        if(found == 0) {
+            //
+            // Nothing from the last message may be left in the header
+            //
+            Arrays.fill(lengthCounts, 0);
+            symbolCount = 0;
+
+            return;
+        }
+
+        Arrays.sort(order, 0, found);
+
+        for(int i = 0; i < found; i++) {
+            depths[i] = (int) (order[i] >>> 8);
+        }
+
+        minimumRedundancy(depths, found);
+        limitLengths(depths, found);
+
+        for(int i = 0; i < found; i++) {
+            lengths[(int) order[i] & 0xFF] = depths[i];
+        }
+
+        symbolCount = CanonicalCode.assign(lengths, codes, canonical);
+
+        Arrays.fill(lengthCounts, 0);
+
+        for(int i = 0; i < symbolCount; i++) {
+            lengthCounts[lengths[canonical[i]]]++;
+        }
+    }
+
+    /**
+     * Replaces ascending weights with optimal code lengths, in place.
+     * Moffat and Katajainen, In-Place Calculation of Minimum-Redundancy
+     * Codes.
+     *
+     * @param a an int array of weights sorted in ascending order
+     * @param n an int amount of weights
+     */
+    private static void minimumRedundancy(int[] a, int n) {
+        if(n == 1) {
+            //
+            // A lonely symbol still needs a bit
+            //
+            a[0] = 1;
+
+            return;
+        }
+
+        //
+        // First pass, left to right - parent pointers
+        //
+        a[0] += a[1];
+        int root = 0;
+        int leaf = 2;
+
+        for(int next = 1; next < n - 1; next++) {
+            if(leaf >= n || a[root] < a[leaf]) {
+                a[next] = a[root];
+                a[root++] = next;
+            } else {
+                a[next] = a[leaf++];
+            }
+
+            if(leaf >= n || (root < next && a[root] < a[leaf])) {
+                a[next] += a[root];
+                a[root++] = next;
+            } else {
+                a[next] += a[leaf++];
+            }
+        }
+
+        //
+        // Second pass, right to left - depths of internal nodes
+        //
+        a[n - 2] = 0;
+
+        for(int next = n - 3; next >= 0; next--) {
+            a[next] = a[a[next]] + 1;
+        }
+
+        //
+        // Third pass, right to left - depths of leaves
+        //
+        int available = 1;
+        int used = 0;
+        int depth = 0;
+        root = n - 2;
+        int next = n - 1;
+
+        while(available > 0) {
+            while(root >= 0 && a[root] == depth) {
+                used++;
+                root--;
+            }
+
+            while(available > used) {
+                a[next--] = depth;
+                available--;
+            }
+
+            available = 2 * used;
+            depth++;
+            used = 0;
+        }
+    }
+
+    /**
+     * Cuts lengths down to the limit, then lengthens the rarest shorter
+     * codes until they form a prefix code again. LengthLimiter finds the
+     * best limited lengths but allocates its levels on every call, this
+     * works in place - and only runs for big skewed messages anyway.
+     *
+     * @param a an int array of lengths, rarest symbols first
+     * @param n an int amount of lengths
+     */
+    private void limitLengths(int[] a, int n) {
+        int capacity = 1 << maxLength;
+        int kraft = 0;
+
+        for(int i = 0; i < n; i++) {
+            a[i] = Math.min(a[i], maxLength);
+            kraft += 1 << (maxLength - a[i]);
+        }
+
+        while(kraft > capacity) {
+            for(int i = 0; i < n && kraft > capacity; i++) {
+                if(a[i] < maxLength) {
+                    kraft -= 1 << (maxLength - a[i] - 1);
+                    a[i]++;
+                }
+            }
+        }
+
+        //
+        // Give the space left back to the most common symbols
+        //
+        for(int i = n - 1; i >= 0; i--) {
+            while(a[i] > 1 && kraft + (1 << (maxLength - a[i])) <= capacity) {
+                kraft += 1 << (maxLength - a[i]);
+                a[i]--;
+            }
+        }
+    }
+
+    /**
+     * Writes the canonical header of the current codes.
+     */
+    private void writeHeader() {
+        int longest = 0;
+
+        for(int length = 1; length <= MAX_LENGTH; length++) {
+            if(lengthCounts[length] > 0) {
+                longest = length;
+            }
+        }
+
+        CanonicalHeader.write(writer, lengthCounts, longest, canonical,
+                symbolCount, 8);
+    }
+
+    /**
+     * Reads a canonical header and fills the decode table.
+     *
+     * @return an int length of the longest code
+     */
+    private int readHeader() {
+        int longest = CanonicalHeader.readCounts(reader, 8, lengthCounts);
+
+        if(longest < 1) {
+            throw new IllegalArgumentException("Invalid code length "
+                    + longest);
+        }
+
+        symbolCount = 0;
+
+        for(int length = 1; length <= longest; length++) {
+            symbolCount += lengthCounts[length];
+        }
+
+        if(symbolCount > Histogram.BYTES) {
+            throw new IllegalArgumentException(symbolCount
+                    + " codes for " + Histogram.BYTES + " symbols");
+        }
+
+        CanonicalHeader.readSymbols(reader, 8, canonical, symbolCount);
+
+        //
+        // Canonical codes are consecutive, so they fill the table from
+        // the start - every code spans the entries it is a prefix of
+        //
+        int end = 0;
+
+        for(int length = 1, i = 0; length <= longest; length++) {
+            int span = 1 << (longest - length);
+
+            for(int j = 0; j < lengthCounts[length]; j++) {
+                if(end + span > 1 << longest) {
+                    throw new IllegalArgumentException(
+                            "Code lengths do not form a prefix code");
+                }
+
+                Arrays.fill(table, end, end + span,
+                        canonical[i++] << 8 | length);
+                end += span;
+            }
+        }
+
+        //
+        // Codes left unused are invalid
+        //
+        Arrays.fill(table, end, 1 << longest, 0);
+
+        return longest;
+    }
+
+    //
+    // Longest allowed code
+    //
+    private final int maxLength;
+
+    //
+    // Shared codes, null when every message has its own
+    //
+    private final HuffmanDictionary dictionary;
+
+    //
+    // Pool the codec belongs to and whether it is idle there
+    //
+    HuffmanCodecPool owner;
+    final AtomicBoolean idle = new AtomicBoolean();
+
+    //
+    // Counts, code lengths and codes indexed by byte
+    //
+    private final int[] counts = new int[Histogram.BYTES];
+    private final int[] lengths = new int[Histogram.BYTES];
+    private final long[] codes = new long[Histogram.BYTES];
+
+    //
+    // Scratch for code lengths: symbols sorted by count and their depths
+    //
+    private final long[] order = new long[Histogram.BYTES];
+    private final int[] depths = new int[Histogram.BYTES];
+
+    //
+    // Canonical order
+    //
+    private final int[] lengthCounts = new int[MAX_LENGTH + 1];
+    private final int[] canonical = new int[Histogram.BYTES];
+    private int symbolCount;
+
+    //
+    // Decode table indexed by the next longest code bits, an entry
+    // holds a symbol and its length, 0 for unused codes
+    //
+    private final int[] table = new int[1 << MAX_LENGTH];
+
+    //
+    // Bit buffers
+    //
+    private final BitWriter writer = new BitWriter();
+    private final BitReader reader = new BitReader(new byte[0]);
+}
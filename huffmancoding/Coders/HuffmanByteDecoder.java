@@ -0,0 +1,138 @@
+/*
+ *  Copyright (C) 2016 Cezary Regec (SudoWaster)
+ * 
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package huffmancoding.Coders;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A decoder for data encoded with HuffmanByteEncoder. The dictionary is
+ * read straight into a decode table, no tree is built.
+ *
+ * @author cezary
+ */
+public class HuffmanByteDecoder {
+
+    /**
+     * Init class with a dictionary from HuffmanByteEncoder.getDictionary()
+     *
+     * @param dictionary a byte array containing the dictionary
+     */
+    public HuffmanByteDecoder(byte[] dictionary) {
+        BitReader reader = new BitReader(dictionary);
+
+        this.decodeTable = new DecodeTable(CanonicalHeader.read(reader, 8));
+        this.length = reader.read(32);
+    }
+
+    /**
+     * Decode a byte array
+     *
+     * @param stream an encoded byte array
+     * @return a decoded byte array
+     */
+    public byte[] decode(byte[] stream) {
+        byte[] result = new byte[length];
+        decode(new BitReader(stream), result, 0);
+
+        return result;
+    }
+
+    /**
+     * Decode the remaining bytes of a buffer into another buffer. The
+     * source is left at the first byte after the encoded data.
+     *
+     * @param source a ByteBuffer with encoded data
+     * @param destination a ByteBuffer with at least getLength() bytes left
+     */
+    public void decode(ByteBuffer source, ByteBuffer destination) {
+        //
+        // Read in place when there's an array behind the buffer
+        //
+        BitReader reader;
+
+        if(source.hasArray()) {
+            reader = new BitReader(source.array(),
+                    source.arrayOffset() + source.position(),
+                    source.remaining());
+        } else {
+            byte[] copy = new byte[source.remaining()];
+            source.duplicate().get(copy);
+
+            reader = new BitReader(copy);
+        }
+
+        if(destination.hasArray()) {
+            decode(reader, destination.array(),
+                    destination.arrayOffset() + destination.position());
+            destination.position(destination.position() + length);
+        } else {
+            byte[] result = new byte[length];
+            decode(reader, result, 0);
+
+            destination.put(result);
+        }
+
+        //
+        // Codes end on a byte boundary, skip the padding too
+        //
+        source.position(source.position()
+                + (int) ((reader.getPosition() + 7) / 8));
+    }
+
+    /**
+     * Returns the amount of bytes in the decoded data.
+     *
+     * @return an int length
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Returns the decode table.
+     *
+     * @return a DecodeTable
+     */
+    public DecodeTable getDecodeTable() {
+        return decodeTable;
+    }
+
+    /**
+     * Decode all bytes into an array.
+     *
+     * @param reader a BitReader with encoded data
+     * @param destination a byte array
+     * @param offset an int first position in the destination
+     */
+    private void decode(BitReader reader, byte[] destination, int offset) {
+        if(decodeTable.decode(reader, destination, offset, length) < length) {
+            throw new IllegalArgumentException("Corrupt Huffman data");
+        }
+    }
+
+    //
+    // Lookup table used for decoding
+    //
+    private final DecodeTable decodeTable;
+
+    //
+    // Amount of bytes to decode
+    //
+    private final int length;
+}
@@ -0,0 +1,205 @@
+/*
+ *  Copyright (C) 2016 Cezary Regec (SudoWaster)
+ * 
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package huffmancoding.Coders;
+
+import huffmancoding.TextTools.OccurrenceCounter;
+import huffmancoding.Tree.CanonicalCode;
+import huffmancoding.Tree.CodeTable;
+import java.nio.ByteBuffer;
+
+/**
+ * An encoder for raw binary data. Every byte is a symbol of a fixed 256
+ * symbol alphabet, codes are canonical and no String or charset is
+ * involved at any point.
+ *
+ * @author cezary
+ */
+public class HuffmanByteEncoder {
+
+    /**
+     * Default longest code
+     */
+    public static final int DEFAULT_MAX_LENGTH = 15;
+
+    /**
+     * Init class with data - count bytes and make codes.
+     *
+     * @param data a byte array with input
+     */
+    public HuffmanByteEncoder(byte[] data) {
+        this(data, 0, data.length, DEFAULT_MAX_LENGTH);
+    }
+
+    /**
+     * Init class with the remaining bytes of a buffer. Array backed buffers
+     * are used in place, others are copied once.
+     *
+     * @param data a ByteBuffer with input
+     */
+    public HuffmanByteEncoder(ByteBuffer data) {
+        this(arrayOf(data), data.hasArray()
+                ? data.arrayOffset() + data.position() : 0,
+                data.remaining(), DEFAULT_MAX_LENGTH);
+    }
+
+    /**
+     * Init class with a part of an array and a code length limit.
+     *
+     * @param data a byte array with input
+     * @param offset an int first position
+     * @param length an int amount of bytes
+     * @param maxLength an int longest allowed code
+     */
+    public HuffmanByteEncoder(byte[] data, int offset, int length,
+            int maxLength) {
+        this.data = data;
+        this.from = offset;
+        this.to = offset + length;
+
+        this.counter = new OccurrenceCounter(data, offset, length);
+        this.codeTable = CanonicalCode.create(counter.getHistogram(),
+                maxLength);
+    }
+
+    /**
+     * Init class with a part of an array and take codes from a cache, so
+     * data with a known distribution needs no new codes.
+     *
+     * @param data a byte array with input
+     * @param offset an int first position
+     * @param length an int amount of bytes
+     * @param cache a CodeTableCache shared by encoders
+     */
+    public HuffmanByteEncoder(byte[] data, int offset, int length,
+            CodeTableCache cache) {
+        this.data = data;
+        this.from = offset;
+        this.to = offset + length;
+
+        this.counter = new OccurrenceCounter(data, offset, length);
+        this.codeTable = cache.get(counter.getHistogram()).getCodeTable();
+    }
+
+    /**
+     * Encode the data to a byte array
+     *
+     * @return an encoded byte array
+     */
+    public byte[] encode() {
+        BitWriter writer = new BitWriter((to - from) / 2 + 8);
+        encode(writer);
+
+        return writer.toByteArray();
+    }
+
+    /**
+     * Encode the data into a ByteBuffer
+     *
+     * @param destination a ByteBuffer with enough space left
+     */
+    public void encode(ByteBuffer destination) {
+        BitWriter writer = new BitWriter(
+                Math.min(destination.remaining(), (to - from) / 2 + 8));
+        encode(writer);
+
+        writer.writeTo(destination);
+    }
+
+    /**
+     * Encode the data with a BitWriter, leftover bits are shifted left to
+     * a full byte.
+     *
+     * @param writer a BitWriter to write codes to
+     */
+    public void encode(BitWriter writer) {
+        for(int i = from; i < to; i++) {
+            long entry = codeTable.getEntry(data[i] & 0xFF);
+
+            writer.write(CodeTable.code(entry), CodeTable.length(entry));
+        }
+
+        writer.flush();
+    }
+
+    /**
+     * Returns the dictionary - a CanonicalHeader with 8 bit symbols,
+     * followed by 32 bits for the amount of bytes.
+     *
+     * @return a byte array containing the dictionary
+     */
+    public byte[] getDictionary() {
+        BitWriter writer = new BitWriter();
+        CanonicalHeader.write(writer, codeTable, 8);
+        writer.write(to - from, 32);
+
+        return writer.toByteArray();
+    }
+
+    /**
+     * Returns codes of the bytes.
+     *
+     * @return a CodeTable
+     */
+    public CodeTable getCodeTable() {
+        return codeTable;
+    }
+
+    /**
+     * Returns the counts of the bytes.
+     *
+     * @return an OccurrenceCounter
+     */
+    public OccurrenceCounter getCounter() {
+        return counter;
+    }
+
+    /**
+     * Returns the array behind a buffer, or a copy of its remaining bytes.
+     *
+     * @param buffer a ByteBuffer
+     * @return a byte array
+     */
+    private static byte[] arrayOf(ByteBuffer buffer) {
+        if(buffer.hasArray()) {
+            return buffer.array();
+        }
+
+        byte[] copy = new byte[buffer.remaining()];
+        buffer.duplicate().get(copy);
+
+        return copy;
+    }
+
+    //
+    // Byte counter
+    //
+    private final OccurrenceCounter counter;
+
+    //
+    // The input bytes
+    //
+    protected byte[] data;
+    protected int from;
+    protected int to;
+
+    //
+    // Codes used for encoding
+    //
+    private final CodeTable codeTable;
+}
@@ -0,0 +1,80 @@
+/*
+ *  Copyright (C) 2016 Cezary Regec (SudoWaster)
+ * 
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package huffmancoding.Coders;
+
+/**
+ * A decoder for text encoded with HuffmanCodePointEncoder.
+ *
+ * @author cezary
+ */
+public class HuffmanCodePointDecoder {
+
+    /**
+     * Init class with a dictionary from
+     * HuffmanCodePointEncoder.getDictionary()
+     *
+     * @param dictionary a byte array containing the dictionary
+     */
+    public HuffmanCodePointDecoder(byte[] dictionary) {
+        BitReader reader = new BitReader(dictionary);
+
+        this.decodeTable = new DecodeTable(CompactHeader.read(reader));
+        this.length = reader.read(32);
+    }
+
+    /**
+     * Decode a byte array
+     *
+     * @param stream an encoded byte array
+     * @return a decoded String
+     */
+    public String decode(byte[] stream) {
+        BitReader reader = new BitReader(stream);
+        int[] codePoints = new int[length];
+
+        for(int i = 0; i < length; i++) {
+            codePoints[i] = decodeTable.decode(reader);
+
+            if(codePoints[i] < 0) {
+                throw new IllegalArgumentException("Corrupt Huffman data");
+            }
+        }
+
+        return new String(codePoints, 0, length);
+    }
+
+    /**
+     * Returns the amount of code points in the decoded text.
+     *
+     * @return an int length
+     */
+    public int getLength() {
+        return length;
+    }
+
+    //
+    // Lookup table used for decoding
+    //
+    private final DecodeTable decodeTable;
+
+    //
+    // Amount of code points to decode
+    //
+    private final int length;
+}
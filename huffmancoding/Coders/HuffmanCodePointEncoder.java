@@ -0,0 +1,138 @@
+/*
+ *  Copyright (C) 2016 Cezary Regec (SudoWaster)
+ * 
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package huffmancoding.Coders;
+
+import huffmancoding.TextTools.CodePointCounter;
+import huffmancoding.Tree.CanonicalCode;
+import huffmancoding.Tree.CodeTable;
+
+/**
+ * An encoder for text of any Unicode code points. Supplementary characters
+ * (surrogate pairs) are a single symbol, codes are canonical and the
+ * dictionary is a CompactHeader, which stays small for big alphabets.
+ *
+ * @author cezary
+ */
+public class HuffmanCodePointEncoder {
+
+    /**
+     * Default longest code, enough for any amount of code points
+     */
+    public static final int DEFAULT_MAX_LENGTH = 21;
+
+    /**
+     * Init class with text - count code points and make codes.
+     *
+     * @param text a String with input
+     */
+    public HuffmanCodePointEncoder(String text) {
+        this(text, DEFAULT_MAX_LENGTH);
+    }
+
+    /**
+     * Init class with text and a code length limit.
+     *
+     * @param text a String with input
+     * @param maxLength an int longest allowed code
+     */
+    public HuffmanCodePointEncoder(String text, int maxLength) {
+        this.text = text;
+        this.counter = new CodePointCounter(text);
+        this.codeTable = CanonicalCode.create(counter.getSymbols(),
+                counter.getCounts(), maxLength);
+    }
+
+    /**
+     * Encode the text to a byte array
+     *
+     * @return an encoded byte array
+     */
+    public byte[] encode() {
+        BitWriter writer = new BitWriter(text.length() / 2 + 8);
+        encode(writer);
+
+        return writer.toByteArray();
+    }
+
+    /**
+     * Encode the text with a BitWriter, leftover bits are shifted left to
+     * a full byte.
+     *
+     * @param writer a BitWriter to write codes to
+     */
+    public void encode(BitWriter writer) {
+        for(int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            long entry = codeTable.getEntry(codePoint);
+
+            writer.write(CodeTable.code(entry), CodeTable.length(entry));
+
+            i += Character.charCount(codePoint);
+        }
+
+        writer.flush();
+    }
+
+    /**
+     * Returns the dictionary - a CompactHeader followed by 32 bits for the
+     * amount of code points.
+     *
+     * @return a byte array containing the dictionary
+     */
+    public byte[] getDictionary() {
+        BitWriter writer = new BitWriter();
+        CompactHeader.write(writer, codeTable);
+        writer.write(counter.getLength(), 32);
+
+        return writer.toByteArray();
+    }
+
+    /**
+     * Returns codes of the code points.
+     *
+     * @return a CodeTable
+     */
+    public CodeTable getCodeTable() {
+        return codeTable;
+    }
+
+    /**
+     * Returns the counts of the code points.
+     *
+     * @return a CodePointCounter
+     */
+    public CodePointCounter getCounter() {
+        return counter;
+    }
+
+    //
+    // Code point counter
+    //
+    private final CodePointCounter counter;
+
+    //
+    // The input string
+    //
+    protected String text;
+
+    //
+    // Codes used for encoding
+    //
+    private final CodeTable codeTable;
+}
@@ -0,0 +1,275 @@
+/*
+ *  Copyright (C) 2016 Cezary Regec (SudoWaster)
+ * 
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package huffmancoding.Coders;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A pool of HuffmanByteCodecs for servers compressing many messages at
+ * once. A codec holds mutable scratch, so a thread borrows one for a
+ * message and gives it back, instead of creating one per request or
+ * keeping one per thread - which adds up with thousands of (virtual)
+ * threads.
+ *
+ * Idle codecs sit in an array of slots taken and returned with a
+ * compare-and-set, starting at a slot picked by the thread, so threads
+ * rarely meet and never block. When every codec is busy a new one is
+ * created, and when every slot is full a returned codec is dropped.
+ * Every codec knows its pool and whether it is idle, so releasing a
+ * codec twice or to another pool fails.
+ *
+ * A pool made with a HuffmanDictionary gives out codecs that share its
+ * code and decode tables, instead of each building its own.
+ *
+ * @author cezary
+ */
+public class HuffmanCodecPool {
+
+    /**
+     * Create a pool with four slots for every processor.
+     */
+    public HuffmanCodecPool() {
+        this(4 * Runtime.getRuntime().availableProcessors(),
+                HuffmanByteCodec.MAX_LENGTH);
+    }
+
+    /**
+     * Create a pool of a given size.
+     *
+     * @param capacity an int most idle codecs kept
+     * @param maxLength an int longest allowed code of the codecs
+     */
+    public HuffmanCodecPool(int capacity, int maxLength) {
+        if(capacity < 1) {
+            throw new IllegalArgumentException("Capacity " + capacity
+                    + " is not positive");
+        }
+
+        //
+        // Fail now rather than on the first codec
+        //
+        new HuffmanByteCodec(maxLength);
+
+        this.slots = new AtomicReferenceArray<HuffmanByteCodec>(capacity);
+        this.maxLength = maxLength;
+        this.dictionary = null;
+    }
+
+    /**
+     * Create a pool of codecs sharing the codes of a byte dictionary.
+     *
+     * @param capacity an int most idle codecs kept
+     * @param dictionary a HuffmanDictionary with 8 bit symbols
+     */
+    public HuffmanCodecPool(int capacity, HuffmanDictionary dictionary) {
+        if(capacity < 1) {
+            throw new IllegalArgumentException("Capacity " + capacity
+                    + " is not positive");
+        }
+
+        new HuffmanByteCodec(dictionary);
+
+        this.slots = new AtomicReferenceArray<HuffmanByteCodec>(capacity);
+        this.maxLength = dictionary.getCodeTable().getMaxLength();
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Takes an idle codec, or creates one if there is none.
+     *
+     * @return a HuffmanByteCodec to give back with release()
+     */
+    public HuffmanByteCodec acquire() {
+        int capacity = slots.length();
+        int start = probe(capacity);
+
+        for(int i = 0; i < capacity; i++) {
+            int slot = start + i < capacity ? start + i : start + i - capacity;
+            HuffmanByteCodec codec = slots.get(slot);
+
+            if(codec != null && slots.compareAndSet(slot, codec, null)) {
+                codec.idle.set(false);
+
+                return codec;
+            }
+        }
+
+        created.incrementAndGet();
+
+        HuffmanByteCodec codec = dictionary == null
+                ? new HuffmanByteCodec(maxLength)
+                : new HuffmanByteCodec(dictionary);
+        codec.owner = this;
+
+        return codec;
+    }
+
+    /**
+     * Gives a codec back. It must not be used afterwards.
+     *
+     * @param codec a HuffmanByteCodec from acquire()
+     */
+    public void release(HuffmanByteCodec codec) {
+        if(codec.owner != this) {
+            throw new IllegalArgumentException("Codec is not from this pool");
+        }
+
+        if(!codec.idle.compareAndSet(false, true)) {
+            throw new IllegalStateException("Codec was released already");
+        }
+
+        int capacity = slots.length();
+        int start = probe(capacity);
+
+        for(int i = 0; i < capacity; i++) {
+            int slot = start + i < capacity ? start + i : start + i - capacity;
+
+            if(slots.get(slot) == null
+                    && slots.compareAndSet(slot, null, codec)) {
+                return;
+            }
+        }
+
+        //
+        // Full - let it go
+        //
+        dropped.incrementAndGet();
+    }
+
+    /**
+     * Encodes a message with a borrowed codec.
+     *
+     * @param source a byte array with the message
+     * @param offset an int first position of the message
+     * @param length an int amount of bytes
+     * @param destination a byte array for the encoded message
+     * @param destinationOffset an int first position to write at
+     * @return an int amount of bytes written
+     * @see HuffmanByteCodec#encode(byte[], int, int, byte[], int)
+     */
+    public int encode(byte[] source, int offset, int length,
+            byte[] destination, int destinationOffset) {
+        HuffmanByteCodec codec = acquire();
+
+        try {
+            return codec.encode(source, offset, length, destination,
+                    destinationOffset);
+        } finally {
+            release(codec);
+        }
+    }
+
+    /**
+     * Decodes a message with a borrowed codec.
+     *
+     * @param source a byte array with an encoded message
+     * @param offset an int first position of the message
+     * @param length an int amount of encoded bytes
+     * @param destination a byte array for the message
+     * @param destinationOffset an int first position to write at
+     * @return an int amount of bytes written
+     * @see HuffmanByteCodec#decode(byte[], int, int, byte[], int)
+     */
+    public int decode(byte[] source, int offset, int length,
+            byte[] destination, int destinationOffset) {
+        HuffmanByteCodec codec = acquire();
+
+        try {
+            return codec.decode(source, offset, length, destination,
+                    destinationOffset);
+        } finally {
+            release(codec);
+        }
+    }
+
+    /**
+     * Returns the dictionary the codecs share.
+     *
+     * @return a HuffmanDictionary, null if every message has its own codes
+     */
+    public HuffmanDictionary getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Returns the amount of codecs created because none was idle.
+     *
+     * @return a long count
+     */
+    public long getCreated() {
+        return created.get();
+    }
+
+    /**
+     * Returns the amount of codecs dropped because the pool was full.
+     *
+     * @return a long count
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Returns the amount of idle codecs.
+     *
+     * @return an int amount
+     */
+    public int size() {
+        int size = 0;
+
+        for(int i = 0; i < slots.length(); i++) {
+            if(slots.get(i) != null) {
+                size++;
+            }
+        }
+
+        return size;
+    }
+
+    /**
+     * Picks the first slot a thread looks at, spread over the pool.
+     *
+     * @param capacity an int amount of slots
+     * @return an int slot
+     */
+    private static int probe(int capacity) {
+        long id = Thread.currentThread().getId();
+        int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+
+        return (int) ((hash & 0xFFFFFFFFL) % capacity);
+    }
+
+    //
+    // Idle codecs, null for empty slots
+    //
+    private final AtomicReferenceArray<HuffmanByteCodec> slots;
+    private final int maxLength;
+
+    //
+    // Codes shared by the codecs, null when every message has its own
+    //
+    private final HuffmanDictionary dictionary;
+
+    //
+    // Misses
+    //
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+}
@@ -19,12 +19,17 @@
 package huffmancoding.Coders;
 
 import huffmancoding.TextTools.CharacterOccurrence;
-import huffmancoding.TextTools.HuffmanCharacter;
 import huffmancoding.Tree.HuffmanTree;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 
 /**
- * A decoder class implementation for Huffman coding
+ * A decoder class implementation for Huffman coding. A decoder is made for
+ * one dictionary and input and is not thread safe, so it is not pooled -
+ * HuffmanCodecPool lends HuffmanByteCodecs for many small byte messages.
  *
  * @author cezary
  */
@@ -39,7 +44,7 @@ public class HuffmanDecoder {
     public HuffmanDecoder(Byte[] stream, boolean isUnicode) {
         this.isUnicode = isUnicode;
         initStream(stream);
-        createTree();
+        this.tree = createTree();
     }
 
     /**
@@ -64,7 +69,7 @@ public class HuffmanDecoder {
         this.isUnicode = isUnicode;
 
         initStream(dictionary);
-        createTree();
+        this.tree = createTree();
     }
 
     /**
@@ -78,7 +83,63 @@ public class HuffmanDecoder {
         this.text = text;
 
         this.buffer = dictionary;
-        createTree();
+        this.tree = createTree();
+    }
+
+    /**
+     * Constructor for a joint stream with an optional canonical dictionary.
+     * Canonical codes are rebuilt from the header without a tree, the tree
+     * field stays null.
+     *
+     * @param stream a Byte[] to fully decode
+     * @param isUnicode a boolean determining character encoding
+     * @param isCanonical a boolean determining dictionary format
+     */
+    public HuffmanDecoder(Byte[] stream, boolean isUnicode,
+            boolean isCanonical) {
+        this.isUnicode = isUnicode;
+
+        if(isCanonical) {
+            //
+            // The text starts right after the byte aligned header
+            //
+            byte[] joint = unbox(stream);
+            BitReader reader = new BitReader(joint);
+            createTable(reader);
+
+            int headerLength = (int) (reader.getPosition() / 8);
+
+            this.text = new Byte[joint.length - headerLength];
+            System.arraycopy(stream, headerLength, text, 0, text.length);
+            this.tree = null;
+        } else {
+            initStream(stream);
+            this.tree = createTree();
+        }
+    }
+
+    /**
+     * Constructor for Byte array byte stream with an optional canonical
+     * dictionary. Canonical codes are rebuilt from the header without a tree,
+     * the tree field stays null.
+     *
+     * @param text a String to decode
+     * @param dictionary a Byte[] stream of dictionary
+     * @param isUnicode a boolean determining character encoding
+     * @param isCanonical a boolean determining dictionary format
+     */
+    public HuffmanDecoder(Byte[] text, Byte[] dictionary, boolean isUnicode,
+            boolean isCanonical) {
+        this.text = text;
+        this.isUnicode = isUnicode;
+
+        if(isCanonical) {
+            createTable(new BitReader(unbox(dictionary)));
+            this.tree = null;
+        } else {
+            initStream(dictionary);
+            this.tree = createTree();
+        }
     }
 
     /**
@@ -92,7 +153,7 @@ public class HuffmanDecoder {
         //
         String convertedDictionary = new String();
         for(Byte b : stream) {
-            String temp = Integer.toBinaryString(b.byteValue());
+            String temp = Integer.toBinaryString(b & 0xFF);
 
             while(temp.length() < 8) {
                 temp = "0" + temp;
@@ -118,15 +179,16 @@ public class HuffmanDecoder {
      *  8 bits for the character
      *  8 bits for the character id length
      *
-     * @param dictionary a dictionary (header) String on which the tree is based
+     * @return a HuffmanTree with the codes of the dictionary
      */
-    private void createTree() {
+    private HuffmanTree createTree() {
         //
         // Get the character amount and init CharacterOccurrecne array
         //
         int characters = Integer.parseInt(cutCharBytesFromBuffer(), 2);
 
         CharacterOccurrence[] occurrences = new CharacterOccurrence[characters];
+        int[] lengths = new int[characters];
 
         //
         // Get all characters from the dictionary
@@ -138,15 +200,10 @@ public class HuffmanDecoder {
             char currentChar = (char) Integer.parseInt(cutCharBytesFromBuffer(), 2);
 
             //
-            // Calculate a virtual frequency of occurrence
-            //
-            double frequency =
-                    characters - Integer.parseInt(cutByteFromBuffer(), 2);
-
-            //
-            // Add to occurrences array
+            // Get the id length, which is all we need for canonical codes
             //
-            occurrences[i] = new CharacterOccurrence(currentChar, frequency);
+            lengths[i] = Integer.parseInt(cutByteFromBuffer(), 2);
+            occurrences[i] = new CharacterOccurrence(currentChar, 0);
         }
 
         //
@@ -159,12 +216,23 @@ public class HuffmanDecoder {
         //
         // Finally create the tree
         //
-        tree = new HuffmanTree(occurrences);
-        HuffmanTree.updateIDs(tree.root, "");
+        return new HuffmanTree(occurrences, lengths);
+    }
 
-        for(CharacterOccurrence e : occurrences) {
-            System.out.println(e.getCharacter() + " - " + e.getOccurrence() + " - " + tree.get(e.getCharacter()).getID());
-        }
+    /**
+     * Method used to create a decode table with a canonical dictionary.
+     * No tree is needed, codes follow from the lengths.
+     *
+     * @param reader a BitReader positioned at the dictionary
+     */
+    private void createTable(BitReader reader) {
+        decodeTable = new DecodeTable(
+                CanonicalHeader.read(reader, isUnicode ? 16 : 8));
+
+        //
+        // The amount of characters tells where the padding starts
+        //
+        length = reader.read(32);
     }
 
     /**
@@ -173,88 +241,149 @@ public class HuffmanDecoder {
      * @return a String decoded using Huffman method
      */
     public String getDecoded() {
-        //
-        // Prepare result and a temporary stream
-        //
-        String result = new String();
-        String byteStream = new String();
+        return new String(decode(unbox(text)));
+    }
 
-        //
-        // Create the stream from input text
-        //
-        for(Byte b : text) {
-            String currentByte = String.format("%8s",
-                    Integer.toBinaryString(b & 0xFF)).replace(' ', '0');
+    /**
+     * Decode a primitive byte stream
+     *
+     * @param stream an encoded byte array
+     * @return a decoded char array
+     */
+    public char[] decode(byte[] stream) {
+        BitReader reader = new BitReader(stream);
 
-            byteStream += currentByte;
+        if(length < 0) {
+            //
+            // Without the amount of characters decode until the end
+            //
+            return getDecodeTable().decodeAll(reader);
         }
 
+        char[] result = new char[length];
+        int decoded = getDecodeTable().decode(reader, result, 0, length);
 
+        return decoded < length ? Arrays.copyOf(result, decoded) : result;
+    }
+
+    /**
+     * Decode a primitive byte stream on many threads, using an index from
+     * HuffmanEncoder.getIndex(). Every part between two offsets is decoded
+     * by a separate task straight into the result array.
+     *
+     * @param stream an encoded byte array
+     * @param index an index byte array
+     * @param executor an ExecutorService decoding the parts
+     * @return a decoded char array
+     */
+    public char[] decode(final byte[] stream, byte[] index,
+            ExecutorService executor) {
         //
-        // Decode byte stream to character array
+        // Read the index
         //
-        Character[] characters = getDecodedChars(byteStream);
+        BitReader indexReader = new BitReader(index);
+        final int total = indexReader.read(32);
+        final int interval = indexReader.read(32);
 
-        int i = 0;
-        while(i < characters.length) {
-            char currentCharacter = characters[i].charValue();
+        final char[] result = new char[total];
+        final DecodeTable table = getDecodeTable();
 
-            //
-            // Add char to result String
-            //
-            result += currentCharacter;
-            i++;
+        List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+
+        for(int start = 0; start < total; start += interval) {
+            final int from = start;
+            final long offset = start == 0 ? 0
+                    : ((long) indexReader.read(32) << 32)
+                    | (indexReader.read(32) & 0xFFFFFFFFL);
+
+            tasks.add(new Callable<Integer>() {
+                public Integer call() {
+                    BitReader reader = new BitReader(stream);
+                    reader.seek(offset);
+
+                    int count = Math.min(interval, total - from);
+
+                    if(table.decode(reader, result, from, count) < count) {
+                        throw new IllegalArgumentException(
+                                "Stream does not match the index");
+                    }
+
+                    return count;
+                }
+            });
         }
 
         //
-        // Finish decoding
+        // Wait for all parts
         //
+        Tasks.run(tasks, executor);
+
         return result;
     }
 
     /**
      * Decode a stream as a Character array
      *
-     * @param byteStream an input bytestream as a String
+     * @param stream an input bytestream as a String
      * @return a decoded Character array
      */
     public Character[] getDecodedChars(String stream) {
+        //
+        // Pack the String bits to bytes
+        //
+        BitWriter writer = new BitWriter(stream.length() / 8 + 1);
+
+        for(int i = 0; i < stream.length(); i++) {
+            writer.write(stream.charAt(i) - '0', 1);
+        }
+
+        writer.flush();
 
-        ArrayList<Character> result = new ArrayList<Character>();
+        char[] decoded = getDecodeTable().decodeAll(
+                new BitReader(writer.toByteArray(), 0, stream.length()));
 
         //
-        // Create a HuffmanCharacter result variable and a temporary buffer
+        // Box resulting array
         //
-        String byteStream = new String(stream.toCharArray());
-        HuffmanCharacter character = null;
-        String characterBuffer = "";
+        Character[] result = new Character[decoded.length];
 
-        while(character == null && byteStream.length() > 0) {
-            //
-            // Search for character by 1 bit
-            //
-            characterBuffer += byteStream.substring(0, 1);
-            byteStream = byteStream.substring(1);
+        for(int i = 0; i < decoded.length; i++) {
+            result[i] = decoded[i];
+        }
 
-            character = tree.get(characterBuffer);
+        return result;
+    }
 
-            //
-            // If found, add it to the result and reset searching
-            //
-            if(character != null) {
-                result.add(character.getCharacter());
-                character = null;
-                characterBuffer = "";
-            }
+    /**
+     * Returns a decode table of the tree, creates it on first use.
+     *
+     * @return a DecodeTable with codes of all characters
+     */
+    public DecodeTable getDecodeTable() {
+        if(decodeTable == null) {
+            decodeTable = new DecodeTable(tree.getCodeTable());
         }
 
-        //
-        // Return resulting array
-        //
-        return result.toArray(new Character[result.size()]);
+        return decodeTable;
     }
 
 
+    /**
+     * Unboxes a Byte array
+     *
+     * @param bytes a Byte array
+     * @return a primitive byte array
+     */
+    private static byte[] unbox(Byte[] bytes) {
+        byte[] result = new byte[bytes.length];
+
+        for(int i = 0; i < bytes.length; i++) {
+            result[i] = bytes[i];
+        }
+
+        return result;
+    }
+
     /**
      * Determine if using unicode and cut 2 bytes, otherwise only one.
      * 
@@ -298,7 +427,7 @@ public class HuffmanDecoder {
     //
     // Input text objects
     //
-    public HuffmanTree tree;
+    public final HuffmanTree tree;
 
     //
     // Input Byte[] to decode
@@ -314,4 +443,14 @@ public class HuffmanDecoder {
     // Buffer used for tree creation from the dictionary
     //
     private String buffer;
+
+    //
+    // Lookup table used for decoding
+    //
+    private DecodeTable decodeTable;
+
+    //
+    // Amount of characters to decode, -1 if unknown
+    //
+    private int length = -1;
 }
@@ -0,0 +1,340 @@
+/*
+ *  Copyright (C) 2016 Cezary Regec (SudoWaster)
+ * 
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package huffmancoding.Coders;
+
+import huffmancoding.TextTools.Histogram;
+import huffmancoding.Tree.CanonicalCode;
+import huffmancoding.Tree.CodeTable;
+
+/**
+ * A static dictionary trained on sample messages and shared by both sides,
+ * so short messages need no dictionary (header) and no tree of their own.
+ * Every symbol of the alphabet gets a code, also the ones missing from the
+ * samples, so any message can be encoded.
+ *
+ * A serialized dictionary has a following form:
+ *  32 bits for MAGIC
+ *  32 bits for the dictionary id
+ *  8 bits for the amount of bits per symbol (8 or 16)
+ *  a CompactHeader, which is small as all symbols have codes
+ *
+ * A message has a following form:
+ *  gamma code of the amount of symbols + 1
+ *  codes of the symbols, padded to a full byte
+ *
+ * @author cezary
+ */
+public class HuffmanDictionary {
+
+    /**
+     * First 4 bytes of a serialized dictionary, "HUFD"
+     */
+    public static final int MAGIC = 0x48554644;
+
+    /**
+     * Longest code for a byte alphabet, keeps decode tables at two levels
+     */
+    public static final int BYTE_MAX_LENGTH = 15;
+
+    /**
+     * Longest code for a char alphabet
+     */
+    public static final int CHAR_MAX_LENGTH = 24;
+
+    /**
+     * Share of the code space left for symbols not found in the samples,
+     * as 1 / UNSEEN_SHARE of the total weight at most
+     */
+    public static final int UNSEEN_SHARE = 64;
+
+    /**
+     * Create a dictionary with given codes.
+     *
+     * @param id an int dictionary id
+     * @param symbolBits an int amount of bits per symbol, 8 or 16
+     * @param table a CodeTable with a code for every symbol
+     */
+    public HuffmanDictionary(int id, int symbolBits, CodeTable table) {
+        if(symbolBits != 8 && symbolBits != 16) {
+            throw new IllegalArgumentException("Symbol bits " + symbolBits
+                    + " is neither 8 nor 16");
+        }
+
+        if(table.size() != 1 << symbolBits) {
+            throw new IllegalArgumentException("Dictionary has "
+                    + table.size() + " codes for " + (1 << symbolBits)
+                    + " symbols");
+        }
+
+        this.id = id;
+        this.symbolBits = symbolBits;
+        this.table = table;
+        this.decodeTable = new DecodeTable(table);
+    }
+
+    /**
+     * Train a char dictionary on sample texts.
+     *
+     * @param samples a String array of sample messages
+     * @param id an int dictionary id
+     * @return a HuffmanDictionary
+     */
+    public static HuffmanDictionary train(String[] samples, int id) {
+        int[] counts = new int[Histogram.CHARS];
+
+        for(String sample : samples) {
+            Histogram.count(sample, 0, sample.length(), counts);
+        }
+
+        return new HuffmanDictionary(id, 16,
+                CanonicalCode.create(smooth(counts), CHAR_MAX_LENGTH));
+    }
+
+    /**
+     * Train a byte dictionary on sample messages.
+     *
+     * @param samples an array of sample messages
+     * @param id an int dictionary id
+     * @return a HuffmanDictionary
+     */
+    public static HuffmanDictionary train(byte[][] samples, int id) {
+        int[] counts = new int[Histogram.BYTES];
+
+        for(byte[] sample : samples) {
+            Histogram.count(sample, 0, sample.length, counts);
+        }
+
+        return new HuffmanDictionary(id, 8,
+                CanonicalCode.create(smooth(counts), BYTE_MAX_LENGTH));
+    }
+
+    /**
+     * Read a serialized dictionary.
+     *
+     * @param data a byte array from toByteArray()
+     * @return a HuffmanDictionary
+     */
+    public static HuffmanDictionary read(byte[] data) {
+        BitReader reader = new BitReader(data);
+
+        if(reader.read(32) != MAGIC) {
+            throw new IllegalArgumentException("Not a Huffman dictionary");
+        }
+
+        int id = reader.read(32);
+        int symbolBits = reader.read(8);
+
+        return new HuffmanDictionary(id, symbolBits,
+                CompactHeader.read(reader));
+    }
+
+    /**
+     * Serializes the dictionary to be stored or sent once.
+     *
+     * @return a byte array
+     */
+    public byte[] toByteArray() {
+        BitWriter writer = new BitWriter();
+        writer.write(MAGIC, 32);
+        writer.write(id & 0xFFFFFFFFL, 32);
+        writer.write(symbolBits, 8);
+        CompactHeader.write(writer, table);
+
+        return writer.toByteArray();
+    }
+
+    /**
+     * Encode a text with a char dictionary.
+     *
+     * @param text a String with input
+     * @return an encoded message
+     */
+    public byte[] encode(String text) {
+        checkSymbolBits(16);
+
+        BitWriter writer = new BitWriter(text.length() / 2 + 8);
+        CompactHeader.writeGamma(writer, text.length() + 1);
+
+        for(int i = 0; i < text.length(); i++) {
+            long entry = table.getEntry(text.charAt(i));
+
+            writer.write(CodeTable.code(entry), CodeTable.length(entry));
+        }
+
+        writer.flush();
+
+        return writer.toByteArray();
+    }
+
+    /**
+     * Encode a part of a byte array with a byte dictionary.
+     *
+     * @param data a byte array with input
+     * @param offset an int first position
+     * @param length an int amount of bytes
+     * @return an encoded message
+     */
+    public byte[] encode(byte[] data, int offset, int length) {
+        checkSymbolBits(8);
+
+        BitWriter writer = new BitWriter(length / 2 + 8);
+        CompactHeader.writeGamma(writer, length + 1);
+
+        for(int i = offset; i < offset + length; i++) {
+            long entry = table.getEntry(data[i] & 0xFF);
+
+            writer.write(CodeTable.code(entry), CodeTable.length(entry));
+        }
+
+        writer.flush();
+
+        return writer.toByteArray();
+    }
+
+    /**
+     * Decode a message encoded with a char dictionary.
+     *
+     * @param message an encoded message
+     * @return a decoded String
+     */
+    public String decodeText(byte[] message) {
+        checkSymbolBits(16);
+
+        BitReader reader = new BitReader(message);
+        int length = CompactHeader.readGamma(reader) - 1;
+
+        char[] result = new char[length];
+
+        if(decodeTable.decode(reader, result, 0, length) < length) {
+            throw new IllegalArgumentException("Corrupt message");
+        }
+
+        return new String(result);
+    }
+
+    /**
+     * Decode a message encoded with a byte dictionary.
+     *
+     * @param message an encoded message
+     * @return a decoded byte array
+     */
+    public byte[] decode(byte[] message) {
+        checkSymbolBits(8);
+
+        BitReader reader = new BitReader(message);
+        int length = CompactHeader.readGamma(reader) - 1;
+
+        byte[] result = new byte[length];
+
+        if(decodeTable.decode(reader, result, 0, length) < length) {
+            throw new IllegalArgumentException("Corrupt message");
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the dictionary id.
+     *
+     * @return an int id
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Returns the amount of bits per symbol.
+     *
+     * @return an int, 8 or 16
+     */
+    public int getSymbolBits() {
+        return symbolBits;
+    }
+
+    /**
+     * Returns the codes of all symbols.
+     *
+     * @return a CodeTable
+     */
+    public CodeTable getCodeTable() {
+        return table;
+    }
+
+    /**
+     * Returns the decode table of all symbols.
+     *
+     * @return a DecodeTable
+     */
+    public DecodeTable getDecodeTable() {
+        return decodeTable;
+    }
+
+    /**
+     * Gives every symbol a weight, so that codes exist for symbols not in
+     * the samples while the sampled ones keep most of the code space.
+     *
+     * @param counts an int array of sample counts, changed in place
+     * @return the counts array
+     */
+    private static int[] smooth(int[] counts) {
+        long total = 0;
+
+        for(int count : counts) {
+            total += count;
+        }
+
+        //
+        // Scale up small samples, unseen symbols weigh 1 each
+        //
+        long wanted = (long) UNSEEN_SHARE * counts.length;
+        long scale = total >= wanted ? 1
+                : (wanted + total - 1) / Math.max(total, 1);
+
+        for(int i = 0; i < counts.length; i++) {
+            counts[i] = (int) Math.min(Integer.MAX_VALUE - 1,
+                    counts[i] * scale) + 1;
+        }
+
+        return counts;
+    }
+
+    /**
+     * Checks if the dictionary is of the right alphabet.
+     *
+     * @param expected an int amount of bits per symbol
+     */
+    private void checkSymbolBits(int expected) {
+        if(symbolBits != expected) {
+            throw new IllegalStateException("Dictionary " + id + " has "
+                    + symbolBits + " bit symbols, not " + expected);
+        }
+    }
+
+    //
+    // Dictionary identity
+    //
+    private final int id;
+    private final int symbolBits;
+
+    //
+    // Codes shared by all messages
+    //
+    private final CodeTable table;
+    private final DecodeTable decodeTable;
+}
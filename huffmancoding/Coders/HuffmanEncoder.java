@@ -20,16 +20,30 @@ package huffmancoding.Coders;
 
 import huffmancoding.TextTools.HuffmanCharacter;
 import huffmancoding.TextTools.OccurrenceCounter;
+import huffmancoding.Tree.CodeTable;
 import huffmancoding.Tree.HuffmanTree;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 
 /**
- * An encoder class that uses Huffman coding
+ * An encoder class that uses Huffman coding. An encoder is made for one
+ * input and is not thread safe, so it is not pooled - servers encoding
+ * many small byte messages at once can borrow HuffmanByteCodecs from a
+ * HuffmanCodecPool instead.
  *
  * @author cezary
  */
 public class HuffmanEncoder {
 
+    /**
+     * Amount of characters encoded by a single task of encode(executor)
+     */
+    public static final int SLICE = 1 << 20;
+
     /**
      * Init class with text - count characters and make a tree with default
      * unicode on
@@ -45,12 +59,63 @@ public class HuffmanEncoder {
      * unicode setting
      *
      * @param text a String with input
+     * @param isUnicode a boolean determining character encoding
      */
     public HuffmanEncoder(String text, boolean isUnicode) {
+        this(text, isUnicode, false);
+    }
+
+    /**
+     * Init class with text - count characters and make a tree, determine
+     * unicode setting and whether canonical codes are used. Canonical codes
+     * depend only on code lengths and use the canonical dictionary format.
+     *
+     * @param text a String with input
+     * @param isUnicode a boolean determining character encoding
+     * @param isCanonical a boolean determining code assignment
+     */
+    public HuffmanEncoder(String text, boolean isUnicode,
+            boolean isCanonical) {
+        this(text, isUnicode, isCanonical, HuffmanTree.DEFAULT_MAX_LENGTH);
+    }
+
+    /**
+     * Init class with text - count characters and make a tree with codes
+     * not longer than a given length. Shorter codes keep decode tables
+     * small at some cost in compression, see
+     * HuffmanTree.getLengthLimitCost().
+     *
+     * @param text a String with input
+     * @param isUnicode a boolean determining character encoding
+     * @param isCanonical a boolean determining code assignment
+     * @param maxLength an int longest allowed code
+     */
+    public HuffmanEncoder(String text, boolean isUnicode,
+            boolean isCanonical, int maxLength) {
+        this.text = text;
+        this.isUnicode = isUnicode;
+        this.isCanonical = isCanonical;
+        this.counter = new OccurrenceCounter(text);
+        this.tree = new HuffmanTree(counter.getFullOccurrence(), maxLength);
+    }
+
+    /**
+     * Init class with text - count characters and take canonical codes
+     * from a cache, so text with a known distribution needs no tree. The
+     * tree field stays null.
+     *
+     * @param text a String with input
+     * @param isUnicode a boolean determining character encoding
+     * @param cache a CodeTableCache shared by encoders
+     */
+    public HuffmanEncoder(String text, boolean isUnicode,
+            CodeTableCache cache) {
         this.text = text;
         this.isUnicode = isUnicode;
+        this.isCanonical = true;
         this.counter = new OccurrenceCounter(text);
-        this.tree = new HuffmanTree(counter.getFullOccurrence());
+        this.tree = null;
+        this.codeTable = cache.get(counter.getHistogram()).getCodeTable();
     }
 
     /**
@@ -59,80 +124,241 @@ public class HuffmanEncoder {
      * @return an encoded Byte array
      */
     public Byte[] getEncoded() {
+        return box(encode());
+    }
+
+    /**
+     * Encode the given String to a primitive byte array
+     *
+     * @return an encoded byte array
+     */
+    public byte[] encode() {
+        BitWriter writer = new BitWriter(text.length() / 2 + 8);
+        encode(writer);
+
+        return writer.toByteArray();
+    }
+
+    /**
+     * Encode the given String on many threads. The text is cut into
+     * slices and bit lengths of the slices are summed first, so every
+     * slice knows its bit offset and is encoded with the shared code table
+     * straight into the result. The result is the same as of encode().
+     *
+     * @param executor an ExecutorService encoding the slices
+     * @return an encoded byte array
+     */
+    public byte[] encode(ExecutorService executor) {
+        final CodeTable table = getCodeTable();
+
         //
-        // Make sure we have ids and init our bytelist
+        // Sum code lengths of every slice
         //
-        HuffmanTree.updateIDs(tree.root, "");
+        List<Callable<Long>> counts = new ArrayList<Callable<Long>>();
+
+        for(int start = 0; start < text.length(); start += SLICE) {
+            final int from = start;
+            final int to = Math.min(start + SLICE, text.length());
 
-        ArrayList<Byte> bytelist = new ArrayList<Byte>();
+            counts.add(new Callable<Long>() {
+                public Long call() {
+                    long bits = 0;
+
+                    for(int i = from; i < to; i++) {
+                        bits += table.getLength(text.charAt(i));
+                    }
+
+                    return bits;
+                }
+            });
+        }
+
+        List<Long> lengths = Tasks.run(counts, executor);
 
         //
-        // Init our leftover bits buffer
+        // Find where every slice starts, 8 spare bytes keep the writers
+        // from growing
         //
-        String leftover = new String();
+        long[] offsets = new long[lengths.size() + 1];
+
+        for(int i = 0; i < lengths.size(); i++) {
+            offsets[i + 1] = offsets[i] + lengths.get(i);
+        }
+
+        int size = (int) ((offsets[lengths.size()] + 7) / 8);
+        final byte[] result = new byte[size + 8];
 
         //
-        // Go through the string
+        // Encode the slices in place. The first byte of a slice can hold
+        // the end of the one before, so it is returned and merged here.
         //
-        for(int i = 0; i < text.length(); i++) {
-            //
-            // Make a collective buffer and init it with leftover bits
-            //
-            String collectiveBuffer = leftover;
-
-            //
-            // Init character bytes
-            //
-            HuffmanCharacter currentCharacter = null;
+        List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+
+        for(int i = 0; i < lengths.size(); i++) {
+            final int from = i * SLICE;
+            final int to = Math.min(from + SLICE, text.length());
+            final long offset = offsets[i];
+
+            tasks.add(new Callable<Integer>() {
+                public Integer call() {
+                    return encode(result, offset, table, from, to);
+                }
+            });
+        }
 
-            char currentChar = text.charAt(i);
+        List<Integer> heads = Tasks.run(tasks, executor);
 
-            //
-            // Add to buffer
-            //
-            currentCharacter = tree.get(currentChar);
-            collectiveBuffer += currentCharacter.getID();
+        for(int i = 0; i < heads.size(); i++) {
+            result[(int) (offsets[i] >>> 3)] |= heads.get(i);
+        }
 
-            //
-            // Make sure we do not extend the byte
-            //
-            while(collectiveBuffer.length() >= 8) {
-                //
-                // Cut first byte and convert it
-                //
-                String tempByteBuffer = collectiveBuffer.substring(0, 8);
-                collectiveBuffer = collectiveBuffer.substring(8);
+        return Arrays.copyOf(result, size);
+    }
 
-                byte tempByte = (byte) Integer.parseInt(tempByteBuffer, 2);
+    /**
+     * Encode a part of the String into an array at a bit offset. Bytes
+     * after the first one are written, the last one padded with zeros.
+     *
+     * @param destination a byte array with 8 spare bytes at the end
+     * @param offset a long bit offset of the part
+     * @param table a CodeTable with codes of all characters
+     * @param from an int first position
+     * @param to an int position after the last one
+     * @return an int with bits of the first byte, zeros before the offset
+     */
+    private int encode(byte[] destination, long offset, CodeTable table,
+            int from, int to) {
+        BitWriter writer = new BitWriter(destination,
+                (int) (offset >>> 3) + 1);
 
-                //
-                // Add to the bytelist
-                //
-                bytelist.add(tempByte);
+        //
+        // Keep the first byte apart, the code crossing it goes on in
+        // the writer
+        //
+        int free = 8 - (int) (offset & 7);
+        int head = 0;
+        int headBits = 0;
+        int i = from;
+
+        for(; i < to && headBits < free; i++) {
+            long entry = table.getEntry(text.charAt(i));
+            long code = CodeTable.code(entry);
+            int length = CodeTable.length(entry);
+            int taken = Math.min(length, free - headBits);
+
+            head = (head << taken) | (int) (code >>> (length - taken));
+            headBits += taken;
+
+            if(taken < length) {
+                writer.write(code & ((1L << (length - taken)) - 1),
+                        length - taken);
             }
-
-            //
-            // Save the leftovers for the next character
-            //
-            leftover = collectiveBuffer;
         }
 
+        encode(writer, table, i, to);
+        writer.flush();
+
+        return head << (free - headBits);
+    }
+
+    /**
+     * Encode the given String into a ByteBuffer
+     *
+     * @param destination a ByteBuffer with enough space left
+     */
+    public void encode(ByteBuffer destination) {
+        BitWriter writer = new BitWriter(
+                Math.min(destination.remaining(), text.length() / 2 + 8));
+        encode(writer);
+
+        writer.writeTo(destination);
+    }
+
+    /**
+     * Encode the given String with a BitWriter, leftover bits are
+     * shifted left to a full byte.
+     *
+     * @param writer a BitWriter to write codes to
+     */
+    public void encode(BitWriter writer) {
+        encode(writer, getCodeTable(), 0, text.length());
+
         //
         // Don't forget the leftovers
         //
-        if(leftover.length() > 0) {
+        writer.flush();
+    }
 
-            while(leftover.length() < 8) {
-                leftover += "0";    // Shift left
+    /**
+     * Encode a part of the String without padding. Short codes are
+     * joined four at a time into one write, long ones two at a time,
+     * as long as they fit in BitWriter.MAX_WRITE.
+     *
+     * @param writer a BitWriter to write codes to
+     * @param table a CodeTable with codes of all characters
+     * @param from an int first position
+     * @param to an int position after the last one
+     */
+    private void encode(BitWriter writer, CodeTable table, int from,
+            int to) {
+        int i = from;
+
+        if(table.getMaxLength() * 4 <= BitWriter.MAX_WRITE) {
+            for(; i + 4 <= to; i += 4) {
+                long first = table.getEntry(text.charAt(i));
+                long second = table.getEntry(text.charAt(i + 1));
+                long third = table.getEntry(text.charAt(i + 2));
+                long fourth = table.getEntry(text.charAt(i + 3));
+
+                int secondLength = CodeTable.length(second);
+                int thirdLength = CodeTable.length(third);
+                int fourthLength = CodeTable.length(fourth);
+
+                long code = CodeTable.code(first) << secondLength
+                        | CodeTable.code(second);
+                code = code << thirdLength | CodeTable.code(third);
+                code = code << fourthLength | CodeTable.code(fourth);
+
+                writer.write(code, CodeTable.length(first) + secondLength
+                        + thirdLength + fourthLength);
             }
+        } else if(table.getMaxLength() * 2 <= BitWriter.MAX_WRITE) {
+            for(; i + 2 <= to; i += 2) {
+                long first = table.getEntry(text.charAt(i));
+                long second = table.getEntry(text.charAt(i + 1));
+
+                int secondLength = CodeTable.length(second);
 
-            bytelist.add((byte) Integer.parseInt(leftover, 2));
+                writer.write(CodeTable.code(first) << secondLength
+                        | CodeTable.code(second),
+                        CodeTable.length(first) + secondLength);
+            }
         }
 
         //
-        // Return the resulting array
+        // Pack the rest code by code
         //
-        return bytelist.toArray(new Byte[bytelist.size()]);
+        for(; i < to; i++) {
+            long entry = table.getEntry(text.charAt(i));
+
+            writer.write(CodeTable.code(entry), CodeTable.length(entry));
+        }
+    }
+
+    /**
+     * Returns a code table of the tree, creates it on first use.
+     *
+     * @return a CodeTable with codes of all characters
+     */
+    public CodeTable getCodeTable() {
+        if(codeTable == null) {
+            //
+            // Tree codes are canonical already, no ids needed
+            //
+            codeTable = tree.getCodeTable();
+        }
+
+        return codeTable;
     }
 
 
@@ -149,9 +375,20 @@ public class HuffmanEncoder {
      *
      * Characters with the same id length are on the same level in the tree.
      *
+     * In canonical mode the CanonicalHeader format is used instead,
+     * followed by 32 bits for the amount of characters in the text.
+     *
      * @return a Byte array containing the dictionary
      */
     public Byte[] getDictionary() {
+        if(isCanonical) {
+            BitWriter writer = new BitWriter();
+            CanonicalHeader.write(writer, getCodeTable(), isUnicode ? 16 : 8);
+            writer.write(text.length(), 32);
+
+            return box(writer.toByteArray());
+        }
+
         //
         // Get the chars
         //
@@ -233,6 +470,66 @@ public class HuffmanEncoder {
         return dictionary.toArray(new Byte[dictionary.size()]);
     }
 
+    /**
+     * Boxes a byte array for the Byte[] interface
+     *
+     * @param bytes a primitive byte array
+     * @return a Byte array
+     */
+    private static Byte[] box(byte[] bytes) {
+        Byte[] result = new Byte[bytes.length];
+
+        for(int i = 0; i < bytes.length; i++) {
+            result[i] = bytes[i];
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns an index of bit offsets for parallel decoding, meant to be
+     * stored next to the dictionary.
+     *
+     * It is a byte stream, which has a following form:
+     *  32 bits for the amount of characters in the text
+     *  32 bits for the interval - characters between offsets
+     *
+     * for every multiple of the interval smaller than the amount:
+     *  64 bits for the bit offset of that character in the encoded text
+     *
+     * @param interval an int amount of characters between offsets
+     * @return a byte array containing the index
+     */
+    public byte[] getIndex(int interval) {
+        if(interval < 1) {
+            throw new IllegalArgumentException("Index interval " + interval
+                    + " is not positive");
+        }
+
+        CodeTable table = getCodeTable();
+        int length = text.length();
+
+        BitWriter writer = new BitWriter(8 + (length / interval) * 8);
+        writer.write(length, 32);
+        writer.write(interval, 32);
+
+        //
+        // Sum code lengths, no need to encode anything
+        //
+        long offset = 0;
+
+        for(int i = 0; i < length; i++) {
+            if(i > 0 && i % interval == 0) {
+                writer.write(offset >>> 32, 32);
+                writer.write(offset & 0xFFFFFFFFL, 32);
+            }
+
+            offset += table.getLength(text.charAt(i));
+        }
+
+        return writer.toByteArray();
+    }
+
     /**
      * Fills a byte in String to be a full 8 characters
      *
@@ -254,12 +551,18 @@ public class HuffmanEncoder {
     //
     // Our text related objects
     //
-    public OccurrenceCounter counter;
-    public HuffmanTree tree;
+    public final OccurrenceCounter counter;
+    public final HuffmanTree tree;
 
     //
     // The input string
     //
     protected String text;
     protected boolean isUnicode;
+    protected boolean isCanonical;
+
+    //
+    // Codes used for encoding
+    //
+    private CodeTable codeTable;
 }
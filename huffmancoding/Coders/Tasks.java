@@ -0,0 +1,67 @@
+/*
+ *  Copyright (C) 2016 Cezary Regec (SudoWaster)
+ * 
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package huffmancoding.Coders;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the tasks of the parallel coders - slices of HuffmanEncoder,
+ * parts of HuffmanDecoder and blocks of BlockContainer - and hands their
+ * failures back to the caller as they were thrown.
+ *
+ * @author cezary
+ */
+public class Tasks {
+
+    /**
+     * Runs tasks and waits for their results. A RuntimeException thrown by
+     * a task is rethrown as it is, other failures are wrapped in an
+     * IllegalStateException.
+     *
+     * @param tasks a List of tasks
+     * @param executor an ExecutorService to run them
+     * @return a List of results in the order of tasks
+     */
+    public static <T> List<T> run(List<Callable<T>> tasks,
+            ExecutorService executor) {
+        List<T> results = new ArrayList<T>(tasks.size());
+
+        try {
+            for(Future<T> future : executor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted", e);
+        } catch(ExecutionException e) {
+            if(e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+
+            throw new IllegalStateException(e.getCause());
+        }
+
+        return results;
+    }
+}
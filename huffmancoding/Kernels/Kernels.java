@@ -0,0 +1,108 @@
+/*
+ *  Copyright (C) 2016 Cezary Regec (SudoWaster)
+ * 
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package huffmancoding.Kernels;
+
+/**
+ * Picks the kernel used to count bytes. The huffmancoding.kernel system
+ * property chooses one: scalar, vector, or auto (the default), which
+ * takes the vector kernel when the runtime has it and the scalar one
+ * otherwise.
+ *
+ * @author cezary
+ */
+public class Kernels {
+
+    /**
+     * Name of the system property choosing a kernel
+     */
+    public static final String PROPERTY = "huffmancoding.kernel";
+
+    /**
+     * Returns the chosen kernel, picked on first use.
+     *
+     * @return a SymbolKernel
+     */
+    public static SymbolKernel get() {
+        SymbolKernel result = chosen;
+
+        if(result == null) {
+            result = choose(System.getProperty(PROPERTY, "auto"));
+            chosen = result;
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the scalar kernel.
+     *
+     * @return a SymbolKernel
+     */
+    public static SymbolKernel scalar() {
+        return SCALAR;
+    }
+
+    /**
+     * Returns the vector kernel if the runtime has one. It needs a JDK
+     * with the Vector API, the multi-release JAR and
+     * --add-modules jdk.incubator.vector.
+     *
+     * @return a SymbolKernel, null if there is none
+     */
+    public static SymbolKernel vector() {
+        try {
+            return VectorKernel.create();
+        } catch(LinkageError e) {
+            //
+            // The incubator module is not there
+            //
+            return null;
+        }
+    }
+
+    /**
+     * Picks a kernel by name.
+     *
+     * @param name a String, scalar, vector or auto
+     * @return a SymbolKernel
+     */
+    private static SymbolKernel choose(String name) {
+        if(name.equals("scalar")) {
+            return SCALAR;
+        }
+
+        SymbolKernel vector = vector();
+
+        if(name.equals("vector") && vector == null) {
+            throw new IllegalStateException("Vector kernel is not available");
+        }
+
+        if(!name.equals("vector") && !name.equals("auto")) {
+            throw new IllegalArgumentException("Unknown kernel " + name);
+        }
+
+        return vector != null ? vector : SCALAR;
+    }
+
+    //
+    // Kernels
+    //
+    private static final SymbolKernel SCALAR = new ScalarKernel();
+    private static volatile SymbolKernel chosen;
+}
@@ -0,0 +1,40 @@
+/*
+ *  Copyright (C) 2016 Cezary Regec (SudoWaster)
+ * 
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package huffmancoding.Kernels;
+
+import huffmancoding.TextTools.Histogram;
+
+/**
+ * Plain Java loops, available on every JDK. The reference all other
+ * kernels must agree with.
+ *
+ * @author cezary
+ */
+public class ScalarKernel implements SymbolKernel {
+
+    @Override
+    public void count(byte[] data, int from, int to, int[] counts) {
+        Histogram.count(data, from, to, counts);
+    }
+
+    @Override
+    public String getName() {
+        return "scalar";
+    }
+}
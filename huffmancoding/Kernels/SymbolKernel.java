@@ -0,0 +1,46 @@
+/*
+ *  Copyright (C) 2016 Cezary Regec (SudoWaster)
+ * 
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package huffmancoding.Kernels;
+
+/**
+ * The inner loop over symbols - counting bytes. Kernels are chosen at
+ * runtime by Kernels.get(), so faster implementations can be added for
+ * newer JDKs without dropping older ones.
+ *
+ * @author cezary
+ */
+public interface SymbolKernel {
+
+    /**
+     * Counts bytes of a byte array.
+     *
+     * @param data a byte array to count
+     * @param from an int first position
+     * @param to an int position after the last one
+     * @param counts an int array of Histogram.BYTES counters to add to
+     */
+    void count(byte[] data, int from, int to, int[] counts);
+
+    /**
+     * Returns a name for logs and benchmarks.
+     *
+     * @return a String name
+     */
+    String getName();
+}
@@ -0,0 +1,38 @@
+/*
+ *  Copyright (C) 2016 Cezary Regec (SudoWaster)
+ * 
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package huffmancoding.Kernels;
+
+/**
+ * Entry point of the Vector API kernel. This is the baseline version,
+ * which has no vector kernel. The multi-release JAR replaces this class
+ * on newer JDKs with the one in versions/17, see README.
+ *
+ * @author cezary
+ */
+public class VectorKernel {
+
+    /**
+     * Creates a vector kernel if the runtime supports one.
+     *
+     * @return a SymbolKernel, null if there is none
+     */
+    public static SymbolKernel create() {
+        return null;
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ *  Copyright (C) 2016 Cezary Regec (SudoWaster)
+ * 
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package huffmancoding.Streams;
+
+import huffmancoding.Coders.AdaptiveHuffmanDecoder;
+import huffmancoding.Coders.BitReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * An InputStream decompressing data written by AdaptiveHuffmanOutputStream.
+ * Bytes are decoded one at a time while the adaptive tree follows the
+ * encoder, with a constant amount of memory.
+ *
+ * @author cezary
+ */
+public class AdaptiveHuffmanInputStream extends InputStream {
+
+    /**
+     * Default size of the compressed data buffer
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    /**
+     * Create a stream with the default buffer.
+     *
+     * @param in an InputStream with compressed data
+     */
+    public AdaptiveHuffmanInputStream(InputStream in) {
+        this(in, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Create a stream reading a channel with the default buffer.
+     *
+     * @param channel a ReadableByteChannel with compressed data
+     */
+    public AdaptiveHuffmanInputStream(ReadableByteChannel channel) {
+        this(Channels.newInputStream(channel));
+    }
+
+    /**
+     * Create a stream with a given buffer size.
+     *
+     * @param in an InputStream with compressed data
+     * @param bufferSize an int size of the compressed data buffer
+     */
+    public AdaptiveHuffmanInputStream(InputStream in, int bufferSize) {
+        this.in = in;
+        this.reader = new BitReader(in, bufferSize);
+        this.decoder = new AdaptiveHuffmanDecoder(8);
+    }
+
+    /**
+     * Reads a decoded byte.
+     *
+     * @return an int byte, -1 at the end of the stream
+     * @throws IOException when the stream fails or the data is corrupt
+     */
+    @Override
+    public int read() throws IOException {
+        try {
+            return decoder.decode(reader);
+        } catch(UncheckedIOException e) {
+            throw e.getCause();
+        } catch(IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads decoded bytes into an array. Waits only for the first byte,
+     * the rest are what can be decoded from data that already arrived.
+     *
+     * @param b a byte array
+     * @param off an int first position
+     * @param len an int maximum amount of bytes
+     * @return an int amount of bytes read, -1 at the end of the stream
+     * @throws IOException when the stream fails or the data is corrupt
+     */
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if(len == 0) {
+            return 0;
+        }
+
+        int count = 0;
+
+        for(; count < len; count++) {
+            if(count > 0 && !isReady()) {
+                break;
+            }
+
+            int symbol = read();
+
+            if(symbol < 0) {
+                break;
+            }
+
+            b[off + count] = (byte) symbol;
+        }
+
+        return count == 0 ? -1 : count;
+    }
+
+    /**
+     * Checks if the next byte can be decoded without waiting.
+     *
+     * @return a boolean determining whether read() won't wait
+     * @throws IOException when the stream fails
+     */
+    private boolean isReady() throws IOException {
+        try {
+            return decoder.isReady(reader);
+        } catch(UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Closes the underlying stream.
+     *
+     * @throws IOException when the stream fails
+     */
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    //
+    // Compressed input
+    //
+    private final InputStream in;
+    private final BitReader reader;
+
+    //
+    // Decoder keeping the adaptive tree
+    //
+    private final AdaptiveHuffmanDecoder decoder;
+}
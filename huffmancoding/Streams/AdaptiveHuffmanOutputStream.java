@@ -0,0 +1,177 @@
+/*
+ *  Copyright (C) 2016 Cezary Regec (SudoWaster)
+ * 
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package huffmancoding.Streams;
+
+import huffmancoding.Coders.AdaptiveHuffmanEncoder;
+import huffmancoding.Coders.BitWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * An OutputStream compressing bytes with adaptive Huffman coding. Every
+ * byte is encoded as soon as it is written, nothing is buffered but the
+ * compressed bytes, so it fits live streams of unknown length.
+ *
+ * The data is an AdaptiveHuffmanEncoder stream of 8 bit symbols.
+ *
+ * @author cezary
+ */
+public class AdaptiveHuffmanOutputStream extends OutputStream {
+
+    /**
+     * Default amount of compressed bytes kept before writing them out
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    /**
+     * Create a stream with the default buffer.
+     *
+     * @param out an OutputStream to write compressed data to
+     */
+    public AdaptiveHuffmanOutputStream(OutputStream out) {
+        this(out, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Create a stream writing to a channel with the default buffer.
+     *
+     * @param channel a WritableByteChannel to write compressed data to
+     */
+    public AdaptiveHuffmanOutputStream(WritableByteChannel channel) {
+        this(Channels.newOutputStream(channel));
+    }
+
+    /**
+     * Create a stream with a given buffer size.
+     *
+     * @param out an OutputStream to write compressed data to
+     * @param bufferSize an int amount of compressed bytes kept
+     */
+    public AdaptiveHuffmanOutputStream(OutputStream out, int bufferSize) {
+        if(bufferSize < 1) {
+            throw new IllegalArgumentException("Buffer size " + bufferSize
+                    + " is not positive");
+        }
+
+        this.out = out;
+        this.bufferSize = bufferSize;
+        this.writer = new BitWriter(bufferSize + 8);
+        this.encoder = new AdaptiveHuffmanEncoder(8);
+    }
+
+    /**
+     * Writes a byte.
+     *
+     * @param b an int with the byte in the lowest bits
+     * @throws IOException when the stream fails or is closed
+     */
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+
+        encoder.encode(b & 0xFF, writer);
+
+        if(writer.size() >= bufferSize) {
+            writer.drainTo(out);
+        }
+    }
+
+    /**
+     * Writes a part of a byte array.
+     *
+     * @param b a byte array
+     * @param off an int first position
+     * @param len an int amount of bytes
+     * @throws IOException when the stream fails or is closed
+     */
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+
+        for(int i = off; i < off + len; i++) {
+            encoder.encode(b[i] & 0xFF, writer);
+
+            if(writer.size() >= bufferSize) {
+                writer.drainTo(out);
+            }
+        }
+    }
+
+    /**
+     * Writes out all full compressed bytes and flushes the underlying
+     * stream. Up to 7 bits of the last code wait for the next byte, as
+     * padding would break the stream.
+     *
+     * @throws IOException when the stream fails or is closed
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+
+        writer.drainTo(out);
+        out.flush();
+    }
+
+    /**
+     * Writes the end of stream mark and closes the underlying stream.
+     *
+     * @throws IOException when the stream fails
+     */
+    @Override
+    public void close() throws IOException {
+        if(closed) {
+            return;
+        }
+
+        try {
+            encoder.end(writer);
+            writer.drainTo(out);
+        } finally {
+            closed = true;
+            out.close();
+        }
+    }
+
+    /**
+     * Checks if the stream can still be written.
+     *
+     * @throws IOException when the stream is closed
+     */
+    private void ensureOpen() throws IOException {
+        if(closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+
+    //
+    // Compressed output
+    //
+    private final OutputStream out;
+    private final BitWriter writer;
+    private final int bufferSize;
+
+    //
+    // Encoder keeping the adaptive tree
+    //
+    private final AdaptiveHuffmanEncoder encoder;
+
+    private boolean closed;
+}
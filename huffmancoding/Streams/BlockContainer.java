@@ -0,0 +1,390 @@
+/*
+ *  Copyright (C) 2016 Cezary Regec (SudoWaster)
+ * 
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package huffmancoding.Streams;
+
+import huffmancoding.Coders.BitReader;
+import huffmancoding.Coders.BitWriter;
+import huffmancoding.Coders.CanonicalHeader;
+import huffmancoding.TextTools.Histogram;
+import huffmancoding.Coders.DecodeTable;
+import huffmancoding.Coders.Tasks;
+import huffmancoding.Tree.CanonicalCode;
+import huffmancoding.Tree.CodeTable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A framed container of independently decodable blocks. The input is cut
+ * into fixed size blocks, every block is encoded on its own and an index
+ * tells where each one starts, so blocks can be encoded and decoded in
+ * parallel and a byte range can be decoded without touching other blocks.
+ *
+ * The container has a following form:
+ *  32 bits for the MAGIC number
+ *  32 bits for the block size
+ *  32 bits for the amount of blocks
+ *  8 bits for flags, SHARED_TABLE if all blocks use one table
+ *  a CanonicalHeader with 8 bit symbols if the table is shared
+ *
+ * for every block (the index):
+ *  64 bits for the block offset from the container start
+ *  32 bits for the amount of bytes in the block
+ *
+ * for every block:
+ *  a CanonicalHeader with 8 bit symbols if the table is not shared
+ *  codes of the bytes, padded to a full byte
+ *
+ * @author cezary
+ */
+public class BlockContainer {
+
+    /**
+     * Container mark, "HUFC"
+     */
+    public static final int MAGIC = 0x48554643;
+
+    /**
+     * Flag set when all blocks share a table
+     */
+    public static final int SHARED_TABLE = 1;
+
+    /**
+     * Default amount of bytes in a block
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 18;
+
+    /**
+     * Encodes bytes with default settings on the common pool.
+     *
+     * @param data a byte array to encode
+     * @return a byte array container
+     */
+    public static byte[] encode(byte[] data) {
+        return encode(data, DEFAULT_BLOCK_SIZE, false,
+                HuffmanOutputStream.DEFAULT_MAX_LENGTH,
+                ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Encodes bytes into a container, blocks are encoded in parallel.
+     *
+     * @param data a byte array to encode
+     * @param blockSize an int amount of bytes in a block
+     * @param sharedTable a boolean determining whether all blocks use one
+     * table built from the whole input
+     * @param maxLength an int longest allowed code
+     * @param executor an ExecutorService encoding the blocks
+     * @return a byte array container
+     */
+    public static byte[] encode(final byte[] data, final int blockSize,
+            final boolean sharedTable, final int maxLength,
+            ExecutorService executor) {
+        if(blockSize < 1) {
+            throw new IllegalArgumentException("Block size " + blockSize
+                    + " is not positive");
+        }
+
+        int count = (int) (((long) data.length + blockSize - 1) / blockSize);
+
+        //
+        // A shared table is made from all the data at once
+        //
+        final CodeTable shared;
+
+        if(sharedTable) {
+            int[] counts = new int[Histogram.BYTES];
+            Histogram.count(data, 0, data.length, counts);
+
+            shared = CanonicalCode.create(counts, maxLength);
+        } else {
+            shared = null;
+        }
+
+        //
+        // Encode the blocks
+        //
+        List<Callable<byte[]>> tasks = new ArrayList<Callable<byte[]>>();
+
+        for(int i = 0; i < count; i++) {
+            final int from = i * blockSize;
+            final int to = (int) Math.min((long) from + blockSize,
+                    data.length);
+
+            tasks.add(new Callable<byte[]>() {
+                public byte[] call() {
+                    BitWriter writer = new BitWriter(to - from);
+                    CodeTable table = shared;
+
+                    if(table == null) {
+                        int[] counts = new int[Histogram.BYTES];
+                        Histogram.count(data, from, to, counts);
+
+                        table = CanonicalCode.create(counts, maxLength);
+                        CanonicalHeader.write(writer, table, 8);
+                    }
+
+                    Blocks.encode(writer, table, data, from, to);
+
+                    return writer.toByteArray();
+                }
+            });
+        }
+
+        List<byte[]> blocks = Tasks.run(tasks, executor);
+
+        //
+        // Write the header
+        //
+        BitWriter header = new BitWriter(64 + count * 12);
+        header.write(MAGIC & 0xFFFFFFFFL, 32);
+        header.write(blockSize, 32);
+        header.write(count, 32);
+        header.write(sharedTable ? SHARED_TABLE : 0, 8);
+
+        if(sharedTable) {
+            CanonicalHeader.write(header, shared, 8);
+        }
+
+        //
+        // Write the index, blocks follow it
+        //
+        long offset = header.size() + (long) count * 12;
+
+        for(int i = 0; i < count; i++) {
+            header.write(offset >>> 32, 32);
+            header.write(offset & 0xFFFFFFFFL, 32);
+            header.write(Math.min(blockSize, data.length - i * blockSize), 32);
+
+            offset += blocks.get(i).length;
+        }
+
+        //
+        // Join everything
+        //
+        byte[] result = Arrays.copyOf(header.toByteArray(), (int) offset);
+        int position = header.size();
+
+        for(byte[] block : blocks) {
+            System.arraycopy(block, 0, result, position, block.length);
+            position += block.length;
+        }
+
+        return result;
+    }
+
+    /**
+     * Opens a container for reading.
+     *
+     * @param container a byte array container
+     */
+    public BlockContainer(byte[] container) {
+        this.container = container;
+
+        BitReader reader = new BitReader(container);
+
+        if(container.length < 13 || reader.read(32) != MAGIC) {
+            throw new IllegalArgumentException("Not a Huffman container");
+        }
+
+        //
+        // Block size is only needed by the encoder, sizes are in the index
+        //
+        reader.skip(32);
+        int count = reader.read(32);
+        int flags = reader.read(8);
+
+        if((flags & SHARED_TABLE) != 0) {
+            sharedTable = new DecodeTable(CanonicalHeader.read(reader, 8));
+        } else {
+            sharedTable = null;
+        }
+
+        //
+        // Read the index and where every block starts in the output
+        //
+        offsets = new long[count + 1];
+        starts = new long[count + 1];
+        sizes = new int[count];
+
+        for(int i = 0; i < count; i++) {
+            offsets[i] = ((long) reader.read(32) << 32)
+                    | (reader.read(32) & 0xFFFFFFFFL);
+            sizes[i] = reader.read(32);
+            starts[i + 1] = starts[i] + sizes[i];
+        }
+
+        offsets[count] = container.length;
+    }
+
+    /**
+     * Returns the amount of blocks.
+     *
+     * @return an int block count
+     */
+    public int getBlockCount() {
+        return sizes.length;
+    }
+
+    /**
+     * Returns the amount of decoded bytes in a block.
+     *
+     * @param index an int block number
+     * @return an int size
+     */
+    public int getBlockSize(int index) {
+        return sizes[index];
+    }
+
+    /**
+     * Returns the amount of decoded bytes in the container.
+     *
+     * @return a long size
+     */
+    public long getSize() {
+        return starts[sizes.length];
+    }
+
+    /**
+     * Decodes a single block.
+     *
+     * @param index an int block number
+     * @return a decoded byte array
+     */
+    public byte[] decodeBlock(int index) {
+        byte[] result = new byte[sizes[index]];
+        decodeBlock(index, result, 0);
+
+        return result;
+    }
+
+    /**
+     * Decodes a single block into an array.
+     *
+     * @param index an int block number
+     * @param destination a byte array
+     * @param offset an int first position in the destination
+     */
+    public void decodeBlock(int index, byte[] destination, int offset) {
+        BitReader reader = new BitReader(container, (int) offsets[index],
+                (int) (offsets[index + 1] - offsets[index]));
+
+        DecodeTable table = sharedTable;
+
+        if(table == null) {
+            table = new DecodeTable(CanonicalHeader.read(reader, 8));
+        }
+
+        if(table.decode(reader, destination, offset, sizes[index])
+                < sizes[index]) {
+            throw new IllegalArgumentException("Corrupt block " + index);
+        }
+    }
+
+    /**
+     * Decodes a byte range, only blocks covering it are decoded.
+     *
+     * @param from a long first decoded byte
+     * @param length an int amount of bytes
+     * @return a decoded byte array
+     */
+    public byte[] decode(long from, int length) {
+        if(from < 0 || length < 0 || from + length > getSize()) {
+            throw new IndexOutOfBoundsException("Range " + from + "+"
+                    + length + " is outside of " + getSize() + " bytes");
+        }
+
+        byte[] result = new byte[length];
+        int position = 0;
+
+        //
+        // Find the first block and copy the needed part of every block
+        //
+        int index = Arrays.binarySearch(starts, from);
+
+        if(index < 0) {
+            index = -index - 2;
+        }
+
+        while(position < length) {
+            while(sizes[index] == 0) {
+                index++;
+            }
+
+            byte[] block = decodeBlock(index);
+            int skip = (int) (from + position - starts[index]);
+            int part = Math.min(block.length - skip, length - position);
+
+            System.arraycopy(block, skip, result, position, part);
+
+            position += part;
+            index++;
+        }
+
+        return result;
+    }
+
+    /**
+     * Decodes the whole container, blocks are decoded in parallel.
+     *
+     * @param executor an ExecutorService decoding the blocks
+     * @return a decoded byte array
+     */
+    public byte[] decodeAll(ExecutorService executor) {
+        final byte[] result = new byte[(int) getSize()];
+
+        List<Callable<byte[]>> tasks = new ArrayList<Callable<byte[]>>();
+
+        for(int i = 0; i < sizes.length; i++) {
+            final int index = i;
+
+            tasks.add(new Callable<byte[]>() {
+                public byte[] call() {
+                    decodeBlock(index, result, (int) starts[index]);
+
+                    return null;
+                }
+            });
+        }
+
+        Tasks.run(tasks, executor);
+
+        return result;
+    }
+
+    //
+    // Container data
+    //
+    private final byte[] container;
+
+    //
+    // Table of all blocks, null if every block has its own
+    //
+    private final DecodeTable sharedTable;
+
+    //
+    // Block index, offsets and starts have an extra entry at the end
+    //
+    private final long[] offsets;
+    private final long[] starts;
+    private final int[] sizes;
+}
@@ -0,0 +1,50 @@
+/*
+ *  Copyright (C) 2016 Cezary Regec (SudoWaster)
+ * 
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package huffmancoding.Streams;
+
+import huffmancoding.Coders.BitWriter;
+import huffmancoding.Tree.CodeTable;
+
+/**
+ * Byte block helpers shared by the stream and container formats.
+ *
+ * @author cezary
+ */
+class Blocks {
+
+    /**
+     * Writes codes of a block, padded to a full byte.
+     *
+     * @param writer a BitWriter to write to
+     * @param table a CodeTable with codes of all bytes in the block
+     * @param data a byte array
+     * @param from an int first position
+     * @param to an int position after the last one
+     */
+    static void encode(BitWriter writer, CodeTable table, byte[] data,
+            int from, int to) {
+        for(int i = from; i < to; i++) {
+            long entry = table.getEntry(data[i] & 0xFF);
+
+            writer.write(CodeTable.code(entry), CodeTable.length(entry));
+        }
+
+        writer.flush();
+    }
+}
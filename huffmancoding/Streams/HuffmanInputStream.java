@@ -0,0 +1,225 @@
+/*
+ *  Copyright (C) 2016 Cezary Regec (SudoWaster)
+ * 
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package huffmancoding.Streams;
+
+import huffmancoding.Coders.BitReader;
+import huffmancoding.Coders.CanonicalHeader;
+import huffmancoding.Coders.DecodeTable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * An InputStream decompressing data written by HuffmanOutputStream.
+ * Compressed bytes are pulled through a fixed size buffer and decoded only
+ * when read, so memory use is constant and the first bytes are available
+ * before the whole stream has arrived.
+ *
+ * @author cezary
+ */
+public class HuffmanInputStream extends InputStream {
+
+    /**
+     * Default size of the compressed data buffer
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    /**
+     * Create a stream with the default buffer.
+     *
+     * @param in an InputStream with compressed data
+     */
+    public HuffmanInputStream(InputStream in) {
+        this(in, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Create a stream reading a channel with the default buffer.
+     *
+     * @param channel a ReadableByteChannel with compressed data
+     */
+    public HuffmanInputStream(ReadableByteChannel channel) {
+        this(Channels.newInputStream(channel));
+    }
+
+    /**
+     * Create a stream with a given buffer size.
+     *
+     * @param in an InputStream with compressed data
+     * @param bufferSize an int size of the compressed data buffer
+     */
+    public HuffmanInputStream(InputStream in, int bufferSize) {
+        this.in = in;
+        this.reader = new BitReader(in, bufferSize);
+    }
+
+    /**
+     * Reads a decoded byte.
+     *
+     * @return an int byte, -1 at the end of the stream
+     * @throws IOException when the stream fails or the data is corrupt
+     */
+    @Override
+    public int read() throws IOException {
+        if(!nextBlock()) {
+            return -1;
+        }
+
+        int symbol = decode();
+        left--;
+
+        return symbol;
+    }
+
+    /**
+     * Reads decoded bytes into an array.
+     *
+     * @param b a byte array
+     * @param off an int first position
+     * @param len an int maximum amount of bytes
+     * @return an int amount of bytes read, -1 at the end of the stream
+     * @throws IOException when the stream fails or the data is corrupt
+     */
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if(len == 0) {
+            return 0;
+        }
+
+        if(!nextBlock()) {
+            return -1;
+        }
+
+        //
+        // Never read past the current block
+        //
+        int count = Math.min(len, left);
+
+        try {
+            if(table.decode(reader, b, off, count) < count) {
+                throw new IOException("Corrupt Huffman stream");
+            }
+        } catch(UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        left -= count;
+
+        return count;
+    }
+
+    /**
+     * Returns the amount of bytes left in the current block, which can be
+     * read without touching the underlying stream more than needed.
+     *
+     * @return an int amount of bytes
+     */
+    @Override
+    public int available() {
+        return left;
+    }
+
+    /**
+     * Closes the underlying stream.
+     *
+     * @throws IOException when the stream fails
+     */
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Moves to the next block when the current one has been read.
+     *
+     * @return a boolean determining whether there is anything left to read
+     * @throws IOException when the stream fails or the data is corrupt
+     */
+    private boolean nextBlock() throws IOException {
+        if(left > 0) {
+            return true;
+        }
+
+        if(ended) {
+            return false;
+        }
+
+        try {
+            //
+            // Blocks start at a full byte
+            //
+            reader.alignToByte();
+
+            if(reader.remaining() < 32) {
+                throw new IOException("Unexpected end of Huffman stream");
+            }
+
+            left = reader.read(32);
+
+            if(left == 0) {
+                ended = true;
+
+                return false;
+            }
+
+            table = new DecodeTable(CanonicalHeader.read(reader, 8));
+        } catch(UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        return true;
+    }
+
+    /**
+     * Decodes a single byte of the current block.
+     *
+     * @return an int byte
+     * @throws IOException when the stream fails or the data is corrupt
+     */
+    private int decode() throws IOException {
+        int symbol;
+
+        try {
+            symbol = table.decode(reader);
+        } catch(UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        if(symbol < 0) {
+            throw new IOException("Corrupt Huffman stream");
+        }
+
+        return symbol;
+    }
+
+    //
+    // Compressed input
+    //
+    private final InputStream in;
+    private final BitReader reader;
+
+    //
+    // Current block codes and the amount of bytes left in it
+    //
+    private DecodeTable table;
+    private int left;
+    private boolean ended;
+}
@@ -0,0 +1,259 @@
+/*
+ *  Copyright (C) 2016 Cezary Regec (SudoWaster)
+ * 
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package huffmancoding.Streams;
+
+import huffmancoding.Coders.BitWriter;
+import huffmancoding.Coders.CanonicalHeader;
+import huffmancoding.Coders.CodeTableCache;
+import huffmancoding.Kernels.Kernels;
+import huffmancoding.TextTools.Histogram;
+import huffmancoding.Tree.CanonicalCode;
+import huffmancoding.Tree.CodeTable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * An OutputStream compressing bytes with Huffman coding in blocks. Every
+ * block has its own codes, so memory use is bounded by the block size
+ * no matter how much data goes through.
+ *
+ * Every block has a following form:
+ *  32 bits for the amount of bytes in the block
+ *  a CanonicalHeader with 8 bit symbols
+ *  codes of the bytes, padded to a full byte
+ *
+ * The stream ends with a block of 0 bytes (just the 32 bits).
+ *
+ * @author cezary
+ */
+public class HuffmanOutputStream extends OutputStream {
+
+    /**
+     * Default amount of bytes in a block
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 16;
+
+    /**
+     * Default longest code, keeps decode tables at two levels
+     */
+    public static final int DEFAULT_MAX_LENGTH = 15;
+
+    /**
+     * Create a stream with default settings.
+     *
+     * @param out an OutputStream to write compressed data to
+     */
+    public HuffmanOutputStream(OutputStream out) {
+        this(out, DEFAULT_BLOCK_SIZE, DEFAULT_MAX_LENGTH);
+    }
+
+    /**
+     * Create a stream writing to a channel with default settings.
+     *
+     * @param channel a WritableByteChannel to write compressed data to
+     */
+    public HuffmanOutputStream(WritableByteChannel channel) {
+        this(Channels.newOutputStream(channel));
+    }
+
+    /**
+     * Create a stream with a block size and a code length limit.
+     *
+     * @param out an OutputStream to write compressed data to
+     * @param blockSize an int amount of bytes in a block
+     * @param maxLength an int longest allowed code
+     */
+    public HuffmanOutputStream(OutputStream out, int blockSize,
+            int maxLength) {
+        if(blockSize < 1) {
+            throw new IllegalArgumentException("Block size " + blockSize
+                    + " is not positive");
+        }
+
+        this.out = out;
+        this.block = new byte[blockSize];
+        this.maxLength = maxLength;
+        this.writer = new BitWriter(blockSize);
+    }
+
+    /**
+     * Create a stream taking block codes from a cache, so blocks with a
+     * known distribution need no new codes.
+     *
+     * @param out an OutputStream to write compressed data to
+     * @param blockSize an int amount of bytes in a block
+     * @param cache a CodeTableCache shared by streams
+     */
+    public HuffmanOutputStream(OutputStream out, int blockSize,
+            CodeTableCache cache) {
+        this(out, blockSize, cache.getMaxLength());
+        this.cache = cache;
+    }
+
+    /**
+     * Writes a byte.
+     *
+     * @param b an int with the byte in the lowest bits
+     * @throws IOException when the stream fails or is closed
+     */
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+
+        block[size++] = (byte) b;
+
+        if(size == block.length) {
+            writeBlock();
+        }
+    }
+
+    /**
+     * Writes a part of a byte array.
+     *
+     * @param b a byte array
+     * @param off an int first position
+     * @param len an int amount of bytes
+     * @throws IOException when the stream fails or is closed
+     */
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+
+        while(len > 0) {
+            //
+            // Fill the block as much as we can
+            //
+            int length = Math.min(len, block.length - size);
+            System.arraycopy(b, off, block, size, length);
+
+            size += length;
+            off += length;
+            len -= length;
+
+            if(size == block.length) {
+                writeBlock();
+            }
+        }
+    }
+
+    /**
+     * Writes the buffered bytes as a (shorter) block and flushes the
+     * underlying stream.
+     *
+     * @throws IOException when the stream fails or is closed
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+
+        if(size > 0) {
+            writeBlock();
+        }
+
+        out.flush();
+    }
+
+    /**
+     * Writes the buffered bytes, the end of stream mark and closes the
+     * underlying stream.
+     *
+     * @throws IOException when the stream fails
+     */
+    @Override
+    public void close() throws IOException {
+        if(closed) {
+            return;
+        }
+
+        try {
+            flush();
+
+            //
+            // An empty block ends the stream
+            //
+            writer.reset();
+            writer.write(0, 32);
+            writer.writeTo(out);
+        } finally {
+            closed = true;
+            out.close();
+        }
+    }
+
+    /**
+     * Encodes the buffered bytes as a block.
+     *
+     * @throws IOException when the stream fails
+     */
+    private void writeBlock() throws IOException {
+        //
+        // Count the bytes and make the block codes
+        //
+        int[] counts = new int[Histogram.BYTES];
+        Kernels.get().count(block, 0, size, counts);
+
+        CodeTable table = cache != null ? cache.get(counts).getCodeTable()
+                : CanonicalCode.create(counts, maxLength);
+
+        //
+        // Write the block header and the codes
+        //
+        writer.reset();
+        writer.write(size, 32);
+        CanonicalHeader.write(writer, table, 8);
+        Blocks.encode(writer, table, block, 0, size);
+
+        writer.writeTo(out);
+
+        size = 0;
+    }
+
+    /**
+     * Checks if the stream can still be written.
+     *
+     * @throws IOException when the stream is closed
+     */
+    private void ensureOpen() throws IOException {
+        if(closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+
+    //
+    // Compressed output
+    //
+    private final OutputStream out;
+    private final BitWriter writer;
+    private final int maxLength;
+
+    //
+    // Codes of earlier blocks, null if not shared
+    //
+    private CodeTableCache cache;
+
+    //
+    // Bytes waiting for a full block
+    //
+    private final byte[] block;
+    private int size;
+
+    private boolean closed;
+}
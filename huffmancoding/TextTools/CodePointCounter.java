@@ -0,0 +1,135 @@
+/*
+ *  Copyright (C) 2016 Cezary Regec (SudoWaster)
+ * 
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package huffmancoding.TextTools;
+
+/**
+ * Counter of Unicode code points in a String. Surrogate pairs count as one
+ * symbol. Counts are kept in 256 entry pages created on first use, so
+ * sparse use of the whole Unicode range stays small.
+ *
+ * @author cezary
+ */
+public class CodePointCounter {
+
+    /**
+     * Init fields with a String
+     *
+     * @param text a String that we'll be counting code points of
+     */
+    public CodePointCounter(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Returns code points that occur, in ascending order.
+     *
+     * @return an int array of code points
+     */
+    public int[] getSymbols() {
+        count();
+
+        return symbols;
+    }
+
+    /**
+     * Returns counts of code points returned by getSymbols().
+     *
+     * @return an int array of counts
+     */
+    public int[] getCounts() {
+        count();
+
+        return counts;
+    }
+
+    /**
+     * Returns the amount of code points in the String.
+     *
+     * @return an int length
+     */
+    public int getLength() {
+        count();
+
+        return length;
+    }
+
+    /**
+     * Counts code points if it has not been done yet.
+     */
+    private void count() {
+        if(symbols != null) {
+            return;
+        }
+
+        int[][] pages = new int[(Character.MAX_CODE_POINT >>> 8) + 1][];
+        int found = 0;
+
+        //
+        // Count into pages
+        //
+        for(int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            i += Character.charCount(codePoint);
+
+            int[] page = pages[codePoint >>> 8];
+
+            if(page == null) {
+                page = new int[256];
+                pages[codePoint >>> 8] = page;
+            }
+
+            if(page[codePoint & 0xFF]++ == 0) {
+                found++;
+            }
+
+            length++;
+        }
+
+        //
+        // Gather the code points in ascending order
+        //
+        symbols = new int[found];
+        counts = new int[found];
+
+        for(int p = 0, i = 0; p < pages.length; p++) {
+            if(pages[p] == null) {
+                continue;
+            }
+
+            for(int c = 0; c < 256; c++) {
+                if(pages[p][c] > 0) {
+                    symbols[i] = (p << 8) | c;
+                    counts[i++] = pages[p][c];
+                }
+            }
+        }
+    }
+
+    //
+    // The original String and its length in code points
+    //
+    private final String text;
+    private int length;
+
+    //
+    // Code points and their counts
+    //
+    private int[] symbols;
+    private int[] counts;
+}
@@ -0,0 +1,194 @@
+/*
+ *  Copyright (C) 2016 Cezary Regec (SudoWaster)
+ * 
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package huffmancoding.TextTools;
+
+/**
+ * Primitive character and byte counting used by OccurrenceCounter. Counts
+ * go straight to an int array indexed by the symbol, without boxing.
+ *
+ * @author cezary
+ */
+public class Histogram {
+
+    /**
+     * Size of a histogram covering every char
+     */
+    public static final int CHARS = 65536;
+
+    /**
+     * Size of a histogram covering every byte
+     */
+    public static final int BYTES = 256;
+
+    /**
+     * Input length from which four interleaved tables are used. Repeated
+     * characters then update different tables and don't wait for each
+     * other's stores.
+     */
+    public static final int UNROLL_THRESHOLD = 1 << 16;
+
+    /**
+     * Counts characters of a String. The threshold applies to the whole
+     * range, the chunks it is copied out in share the same tables.
+     *
+     * @param text a String to count
+     * @param from an int first position
+     * @param to an int position after the last one
+     * @param counts an int array of CHARS counters to add to
+     */
+    public static void count(String text, int from, int to, int[] counts) {
+        //
+        // Copy out chunks, charAt() is slower than array access
+        //
+        char[] chunk = new char[Math.min(CHUNK, to - from)];
+
+        if(to - from < UNROLL_THRESHOLD) {
+            for(int position = from; position < to;
+                    position += chunk.length) {
+                int length = Math.min(chunk.length, to - position);
+                text.getChars(position, position + length, chunk, 0);
+
+                for(int i = 0; i < length; i++) {
+                    counts[chunk[i]]++;
+                }
+            }
+
+            return;
+        }
+
+        int[] second = new int[CHARS];
+        int[] third = new int[CHARS];
+        int[] fourth = new int[CHARS];
+
+        for(int position = from; position < to; position += chunk.length) {
+            int length = Math.min(chunk.length, to - position);
+            text.getChars(position, position + length, chunk, 0);
+
+            count(chunk, 0, length, counts, second, third, fourth);
+        }
+
+        merge(counts, second, third, fourth);
+    }
+
+    /**
+     * Counts characters of a char array.
+     *
+     * @param text a char array to count
+     * @param from an int first position
+     * @param to an int position after the last one
+     * @param counts an int array of CHARS counters to add to
+     */
+    public static void count(char[] text, int from, int to, int[] counts) {
+        if(to - from < UNROLL_THRESHOLD) {
+            for(int i = from; i < to; i++) {
+                counts[text[i]]++;
+            }
+
+            return;
+        }
+
+        int[] second = new int[CHARS];
+        int[] third = new int[CHARS];
+        int[] fourth = new int[CHARS];
+
+        count(text, from, to, counts, second, third, fourth);
+        merge(counts, second, third, fourth);
+    }
+
+    /**
+     * Counts bytes of a byte array. Four small tables are always used,
+     * merging them costs next to nothing.
+     *
+     * @param data a byte array to count
+     * @param from an int first position
+     * @param to an int position after the last one
+     * @param counts an int array of BYTES counters to add to
+     */
+    public static void count(byte[] data, int from, int to, int[] counts) {
+        int[] first = new int[BYTES];
+        int[] second = new int[BYTES];
+        int[] third = new int[BYTES];
+        int[] fourth = new int[BYTES];
+
+        int i = from;
+
+        for(; i + 3 < to; i += 4) {
+            first[data[i] & 0xFF]++;
+            second[data[i + 1] & 0xFF]++;
+            third[data[i + 2] & 0xFF]++;
+            fourth[data[i + 3] & 0xFF]++;
+        }
+
+        for(; i < to; i++) {
+            first[data[i] & 0xFF]++;
+        }
+
+        for(int b = 0; b < BYTES; b++) {
+            counts[b] += first[b] + second[b] + third[b] + fourth[b];
+        }
+    }
+
+    /**
+     * Counts characters into four interleaved tables, four characters per
+     * iteration.
+     *
+     * @param text a char array to count
+     * @param from an int first position
+     * @param to an int position after the last one
+     * @param first an int array of CHARS counters
+     * @param second an int array of CHARS counters
+     * @param third an int array of CHARS counters
+     * @param fourth an int array of CHARS counters
+     */
+    private static void count(char[] text, int from, int to, int[] first,
+            int[] second, int[] third, int[] fourth) {
+        int i = from;
+
+        for(; i + 3 < to; i += 4) {
+            first[text[i]]++;
+            second[text[i + 1]]++;
+            third[text[i + 2]]++;
+            fourth[text[i + 3]]++;
+        }
+
+        for(; i < to; i++) {
+            first[text[i]]++;
+        }
+    }
+
+    /**
+     * Adds interleaved tables to the first one.
+     *
+     * @param counts an int array of CHARS counters to add to
+     * @param second an int array of CHARS counters
+     * @param third an int array of CHARS counters
+     * @param fourth an int array of CHARS counters
+     */
+    private static void merge(int[] counts, int[] second, int[] third,
+            int[] fourth) {
+        for(int c = 0; c < CHARS; c++) {
+            counts[c] += second[c] + third[c] + fourth[c];
+        }
+    }
+
+    //
+    // Characters copied out of a String at once
+    //
+    private static final int CHUNK = 8192;
+}
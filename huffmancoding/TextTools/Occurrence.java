@@ -18,9 +18,6 @@
 
 package huffmancoding.TextTools;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-
 /**
  * A class for handling CharacterOccurrence operations
  * @author cezary
@@ -28,49 +25,143 @@ import java.util.Arrays;
 public class Occurrence {
 
     /**
-     * This method sorts given array of CharacterOccurrence
+     * This method sorts given array of CharacterOccurrence by occurrence,
+     * equal occurrences by character, so the order does not depend on the
+     * input order. It's a merge sort of indexes, O(n log n).
      *
      * @param occurrence CharacterOccurrence array to sort
      */
     public static void sort(CharacterOccurrence[] occurrence) {
+        int count = occurrence.length;
+
         //
-        // Make a separate array of frequencies
+        // Make separate arrays of keys
         //
-        double[] frequencies = new double[occurrence.length];
+        double[] frequencies = new double[count];
+        char[] characters = new char[count];
+        int[] order = new int[count];
 
-        for(int i = 0; i < frequencies.length; i++) {
+        for(int i = 0; i < count; i++) {
             frequencies[i] = occurrence[i].getOccurrence();
+            characters[i] = occurrence[i].getCharacter();
+            order[i] = i;
         }
 
+        order = sort(order, frequencies, characters);
+
         //
-        // Sort the frequencies
+        // Put sorted elements in the source array
         //
-        Arrays.sort(frequencies);
+        CharacterOccurrence[] source = occurrence.clone();
+
+        for(int i = 0; i < count; i++) {
+            occurrence[i] = source[order[i]];
+        }
+    }
+
+    /**
+     * Returns indexes ordered by weight, equal weights by index. The same
+     * merge sort as sort(), for trees built from plain weights.
+     *
+     * @param weights a double array
+     * @return an int array of indexes
+     */
+    public static int[] sort(double[] weights) {
+        int[] order = new int[weights.length];
+
+        for(int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+
+        return sort(order, weights, null);
+    }
+
+    /**
+     * Sorts indexes by their keys - bottom up merge sort, starting with
+     * insertion sorted runs. Equal keys keep the index order.
+     *
+     * @param order an int array of indexes
+     * @param frequencies a double array of first keys
+     * @param characters a char array of second keys, null if there are none
+     * @return an int array of sorted indexes, the given one or a new one
+     */
+    private static int[] sort(int[] order, double[] frequencies,
+            char[] characters) {
+        int count = order.length;
 
         //
-        // Create a source ArrayList we'll be using to get elements from
+        // Short runs are sorted in place
         //
-        ArrayList<CharacterOccurrence> temp =
-                new ArrayList<CharacterOccurrence>(Arrays.asList(occurrence));
+        for(int start = 0; start < count; start += RUN) {
+            int end = Math.min(start + RUN, count);
+
+            for(int i = start + 1; i < end; i++) {
+                int index = order[i];
+                int j = i - 1;
+
+                while(j >= start && compare(order[j], index, frequencies,
+                        characters) > 0) {
+                    order[j + 1] = order[j];
+                    j--;
+                }
+
+                order[j + 1] = index;
+            }
+        }
 
         //
-        // Put sorted elements in the source array
+        // Merge runs of growing width, back and forth between two arrays
         //
-        for(int i = 0; i < frequencies.length; i++) {
-
-            for(int j = 0; j < temp.size(); j++) {
-
-                if(temp.get(j).getOccurrence() == frequencies[i]) {
-                    //
-                    // If the CharacterOccurrence is matched, put it on its
-                    // place and remove from the source array to prevent
-                    // multiple records
-                    //
-                    occurrence[i] = temp.get(j);
-                    temp.remove(j);
-                    break;
+        int[] buffer = new int[count];
+
+        for(int width = RUN; width < count; width *= 2) {
+            for(int start = 0; start < count; start += 2 * width) {
+                int middle = Math.min(start + width, count);
+                int end = Math.min(start + 2 * width, count);
+
+                int i = start;
+                int j = middle;
+
+                for(int k = start; k < end; k++) {
+                    if(i < middle && (j >= end || compare(order[i], order[j],
+                            frequencies, characters) <= 0)) {
+                        buffer[k] = order[i++];
+                    } else {
+                        buffer[k] = order[j++];
+                    }
                 }
             }
+
+            int[] temp = order;
+            order = buffer;
+            buffer = temp;
         }
+
+        return order;
+    }
+
+    /**
+     * Compares two indexes by frequency, then by character.
+     *
+     * @param a an int index
+     * @param b an int index
+     * @param frequencies a double array of first keys
+     * @param characters a char array of second keys, null if there are none
+     * @return an int, negative when a goes first
+     */
+    private static int compare(int a, int b, double[] frequencies,
+            char[] characters) {
+        int result = Double.compare(frequencies[a], frequencies[b]);
+
+        if(result != 0 || characters == null) {
+            return result;
+        }
+
+        return characters[a] - characters[b];
     }
+
+    //
+    // Length of insertion sorted runs
+    //
+    private static final int RUN = 16;
 }
@@ -18,9 +18,8 @@
 
 package huffmancoding.TextTools;
 
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map;
+import huffmancoding.Kernels.Kernels;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Simple counter for counting statistic occurrence frequency for every 
@@ -30,6 +29,11 @@ import java.util.Map;
  */
 public class OccurrenceCounter {
 
+    /**
+     * Default input length from which characters are counted in parallel
+     */
+    public static final int PARALLEL_THRESHOLD = 1 << 22;
+
     /**
      * Init fields with a String
      *
@@ -49,6 +53,29 @@ public class OccurrenceCounter {
         this(String.valueOf(txt));
     }
 
+    /**
+     * Init fields with raw bytes. Every byte is a symbol of a 256 symbol
+     * alphabet, no charset conversion is done.
+     *
+     * @param data a byte array we'll be counting bytes of
+     */
+    public OccurrenceCounter(byte[] data) {
+        this(data, 0, data.length);
+    }
+
+    /**
+     * Init fields with a part of a byte array.
+     *
+     * @param data a byte array we'll be counting bytes of
+     * @param offset an int first position
+     * @param length an int amount of bytes
+     */
+    public OccurrenceCounter(byte[] data, int offset, int length) {
+        this.data = data;
+        this.offset = offset;
+        this.length = length;
+    }
+
     /**
      * Calls for counting and returns occurrence of every Character in a String.
      *
@@ -121,100 +148,114 @@ public class OccurrenceCounter {
     /**
      *
      * This method iterates through whole String counting letter occurrences.
-     * It stores the result in a HashMap.
+     * It stores the result in an int array indexed by the character.
      *
      */
     private void checkOccurrence() {
+        if(data != null) {
+            //
+            // Bytes have their own small alphabet
+            //
+            counts = new int[Histogram.BYTES];
+
+            Kernels.get().count(data, offset, offset + length, counts);
+
+            return;
+        }
+
         //
-        // Prepare our dictionary.
+        // Prepare our counters.
         //
-        dictionary = new HashMap<Character, Integer>();
+        counts = new int[Histogram.CHARS];
 
         //
         // The length will come in handy later.
         //
         this.length = this.text.length();
 
-        //
-        // Let's iterate through string to count letters.
-        //
-        for(int i = 0; i < this.length; i++) {
+        if(!isUnicode) {
             //
-            // We need to know current char
+            // Big inputs are counted on all cores
             //
-            char currentChar = this.text.charAt(i);
+            ForkJoinPool pool = ForkJoinPool.commonPool();
 
-            //
-            // Split unicode characters
-            //
-            if(isUnicode) {
-                //
-                // Cut the first byte
-                //
-                char leftChar = (char) (currentChar / 256);
-                currentChar -= leftChar * 256;
-
-                addToDictionary(leftChar);
+            if(length >= parallelThreshold && pool.getParallelism() > 1) {
+                counts = ParallelHistogram.count(text, pool);
+            } else {
+                Histogram.count(text, 0, length, counts);
             }
 
-            addToDictionary(currentChar);
+            return;
+        }
+
+        //
+        // Split unicode characters
+        //
+        for(int i = 0; i < this.length; i++) {
+            char currentChar = this.text.charAt(i);
+
+            counts[currentChar >>> 8]++;
+            counts[currentChar & 0xFF]++;
         }
     }
 
     /**
-     * Adds a character to thr dictionary
+     * Sets the input length from which characters are counted in parallel.
+     * Has no effect once counting is done.
      *
-     * @param character a char to add (preferably max 256)
+     * @param parallelThreshold an int length, Integer.MAX_VALUE to always
+     * count on one thread
      */
-    private void addToDictionary(char character) {
-        //
-        // Default occurrence number
-        //
-        int occurrenceNumber = 1;
+    public void setParallelThreshold(int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
 
-        if(dictionary.containsKey(character)) {
-            //
-            // If it's already in HashMap, update the occurrence
-            //
-            occurrenceNumber = dictionary.get(character) + 1;
-        }
+    /**
+     * Returns the amount of every character, indexed by the character.
+     *
+     * @return an int array of Histogram.CHARS counters, Histogram.BYTES
+     * when counting bytes
+     */
+    public int[] getHistogram() {
+        count();
 
-        //
-        // Put value under our char key
-        //
-        dictionary.put(character, occurrenceNumber);
+        return counts;
     }
 
     /**
      *
-     * Converts our dictionary HashMap with Characters and their number
-     * of occurrences to a CharOccurrence array called occurrences with chars
-     * and their frequency.
+     * Converts our counters with the number of occurrences of every char
+     * to a CharOccurrence array called occurrences with chars and their
+     * frequency.
      *
      */
     private void convertToCharacterOccurrence() {
         //
-        // Create temporary result array
+        // Count characters that occur at all
         //
-        CharacterOccurrence[] occurrence =
-                new CharacterOccurrence[dictionary.size()];
+        int found = 0;
+
+        for(int occurrenceNumber : counts) {
+            if(occurrenceNumber > 0) {
+                found++;
+            }
+        }
 
         //
-        // Let's iterate through HashMap, notice we need indexes for the array
+        // Create temporary result array
         //
-        Iterator iterator = dictionary.entrySet().iterator();
-        for(int i = 0; iterator.hasNext(); i++) {
-            //
-            // Get current elements
-            //
-            Map.Entry dictionaryEntry = (Map.Entry) iterator.next();
+        CharacterOccurrence[] occurrence = new CharacterOccurrence[found];
+
+        for(int character = 0, i = 0; i < found; character++) {
+            int occurrenceNumber = counts[character];
+
+            if(occurrenceNumber == 0) {
+                continue;
+            }
 
             //
-            // Prepare character and its frequency
+            // Prepare its frequency
             //
-            Character character = (Character) dictionaryEntry.getKey();
-
-            int occurrenceNumber = (Integer) dictionaryEntry.getValue();
             double frequency = (double) occurrenceNumber / length;
 
             if(isUnicode) {
@@ -224,7 +265,7 @@ public class OccurrenceCounter {
             //
             // Add those values to array
             //
-            occurrence[i] = new CharacterOccurrence(character.charValue(),
+            occurrence[i++] = new CharacterOccurrence((char) character,
                     frequency);
         }
 
@@ -236,15 +277,17 @@ public class OccurrenceCounter {
 
     
     //
-    // The original String and its length
+    // The original String (or bytes) and its length
     //
     private String text;
+    private byte[] data;
+    private int offset;
     private int length;
 
     //
     // Character occurrence holders
     //
-    private HashMap<Character, Integer> dictionary;
+    private int[] counts;
     private CharacterOccurrence[] occurrence;
 
     private boolean isUnicode;
@@ -253,4 +296,9 @@ public class OccurrenceCounter {
     // Whether the String has been counted yet
     //
     private boolean isDone = false;
+
+    //
+    // Input length from which counting goes parallel
+    //
+    private int parallelThreshold = PARALLEL_THRESHOLD;
 }
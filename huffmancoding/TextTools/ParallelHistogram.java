@@ -0,0 +1,102 @@
+/*
+ *  Copyright (C) 2016 Cezary Regec (SudoWaster)
+ * 
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package huffmancoding.TextTools;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Fork-join character counting for large inputs. The input is split in
+ * halves until a part is small enough, every part is counted into its own
+ * histogram and the histograms are summed while joining.
+ *
+ * @author cezary
+ */
+public class ParallelHistogram extends RecursiveTask<int[]> {
+
+    /**
+     * Amount of characters counted by a single task
+     */
+    public static final int CHUNK = 1 << 20;
+
+    /**
+     * Counts characters of a String in a pool.
+     *
+     * @param text a String to count
+     * @param pool a ForkJoinPool to run in
+     * @return an int array of Histogram.CHARS counters
+     */
+    public static int[] count(String text, ForkJoinPool pool) {
+        return pool.invoke(new ParallelHistogram(text, 0, text.length()));
+    }
+
+    /**
+     * Create a task counting a part of a String.
+     *
+     * @param text a String to count
+     * @param from an int first position
+     * @param to an int position after the last one
+     */
+    private ParallelHistogram(String text, int from, int to) {
+        this.text = text;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Counts the part, splitting it when it is too big.
+     *
+     * @return an int array of Histogram.CHARS counters
+     */
+    @Override
+    protected int[] compute() {
+        if(to - from <= CHUNK) {
+            int[] counts = new int[Histogram.CHARS];
+            Histogram.count(text, from, to, counts);
+
+            return counts;
+        }
+
+        //
+        // Count the left half elsewhere, the right one here
+        //
+        int middle = (from + to) >>> 1;
+
+        ParallelHistogram left = new ParallelHistogram(text, from, middle);
+        left.fork();
+
+        int[] counts = new ParallelHistogram(text, middle, to).compute();
+        int[] leftCounts = left.join();
+
+        for(int c = 0; c < counts.length; c++) {
+            counts[c] += leftCounts[c];
+        }
+
+        return counts;
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    //
+    // Counted part of the input
+    //
+    private final String text;
+    private final int from;
+    private final int to;
+}
@@ -0,0 +1,304 @@
+/*
+ *  Copyright (C) 2016 Cezary Regec (SudoWaster)
+ * 
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package huffmancoding.Tree;
+
+import java.util.Arrays;
+
+/**
+ * An adaptive Huffman tree (FGK algorithm). The tree starts with a single
+ * NYT (not yet transmitted) node and is updated after every symbol, so
+ * encoder and decoder keep identical trees without a dictionary.
+ *
+ * Nodes are kept in parallel arrays. Every node has a number and weights
+ * never decrease with numbers (the sibling property), so the highest
+ * numbered node of a weight is found with a binary search. An update
+ * costs O(depth * log(nodes)).
+ *
+ * @author cezary
+ */
+public class AdaptiveHuffmanTree {
+
+    /**
+     * Create a tree for symbols of a given amount of bits.
+     *
+     * @param symbolBits an int amount of bits per symbol, at most 16
+     */
+    public AdaptiveHuffmanTree(int symbolBits) {
+        if(symbolBits < 1 || symbolBits > 16) {
+            throw new IllegalArgumentException("Symbol bits " + symbolBits
+                    + " is not between 1 and 16");
+        }
+
+        int symbols = 1 << symbolBits;
+        int nodes = 2 * symbols + 1;
+
+        parent = new int[nodes];
+        children = new int[2 * nodes];
+        weight = new long[nodes];
+        symbol = new int[nodes];
+        number = new int[nodes];
+        byNumber = new int[nodes];
+
+        leaves = new int[symbols];
+        Arrays.fill(leaves, -1);
+
+        //
+        // The root is the NYT node with the highest number
+        //
+        nyt = newNode(NYT, nodes - 1);
+        root = nyt;
+        parent[root] = -1;
+    }
+
+    /**
+     * Returns the root node.
+     *
+     * @return an int node
+     */
+    public int getRoot() {
+        return root;
+    }
+
+    /**
+     * Returns a child of a branch node.
+     *
+     * @param node an int branch node
+     * @param side an int 0 for left, 1 for right
+     * @return an int node
+     */
+    public int getChild(int node, int side) {
+        return children[2 * node + side];
+    }
+
+    /**
+     * Checks if a node is a leaf (a symbol or the NYT node).
+     *
+     * @param node an int node
+     * @return a boolean determining whether it is a leaf
+     */
+    public boolean isLeaf(int node) {
+        return symbol[node] != BRANCH;
+    }
+
+    /**
+     * Returns a symbol of a leaf.
+     *
+     * @param node an int leaf node
+     * @return an int symbol, NYT for the NYT node
+     */
+    public int getSymbol(int node) {
+        return symbol[node];
+    }
+
+    /**
+     * Checks if the symbol has been seen.
+     *
+     * @param value an int symbol
+     * @return a boolean determining whether it has a leaf
+     */
+    public boolean contains(int value) {
+        return leaves[value] >= 0;
+    }
+
+    /**
+     * Writes the path from the root to the leaf of a symbol, or to the NYT
+     * node if the symbol has not been seen yet or is NYT.
+     *
+     * @param value an int symbol or NYT
+     * @param path an int array for bits, long enough for the depth
+     * @return an int path length
+     */
+    public int getPath(int value, int[] path) {
+        int node = value != NYT && leaves[value] >= 0 ? leaves[value] : nyt;
+
+        //
+        // Walk up, then reverse
+        //
+        int length = 0;
+
+        for(; node != root; node = parent[node]) {
+            path[length++] = children[2 * parent[node] + 1] == node ? 1 : 0;
+        }
+
+        for(int i = 0, j = length - 1; i < j; i++, j--) {
+            int temp = path[i];
+            path[i] = path[j];
+            path[j] = temp;
+        }
+
+        return length;
+    }
+
+    /**
+     * Returns the maximum amount of nodes, which bounds the depth.
+     *
+     * @return an int node count
+     */
+    public int getCapacity() {
+        return parent.length;
+    }
+
+    /**
+     * Adds a symbol occurrence and restores the sibling property.
+     *
+     * @param value an int symbol
+     */
+    public void update(int value) {
+        int node = leaves[value];
+
+        if(node < 0) {
+            //
+            // Split the NYT node into a new NYT and a new leaf
+            //
+            int oldNyt = nyt;
+
+            node = newNode(value, number[oldNyt] - 1);
+            nyt = newNode(NYT, number[oldNyt] - 2);
+
+            symbol[oldNyt] = BRANCH;
+            setChild(oldNyt, 0, nyt);
+            setChild(oldNyt, 1, node);
+
+            leaves[value] = node;
+        }
+
+        //
+        // Go up to the root, moving every node to the top of its block
+        // before its weight grows
+        //
+        for(; node >= 0; node = parent[node]) {
+            int leader = leader(node);
+
+            if(leader != node && leader != parent[node]) {
+                swap(node, leader);
+            }
+
+            weight[node]++;
+        }
+    }
+
+    /**
+     * Finds the highest numbered node with the same weight.
+     *
+     * @param node an int node
+     * @return an int leader node
+     */
+    private int leader(int node) {
+        long w = weight[node];
+
+        int low = number[node];
+        int high = byNumber.length - 1;
+
+        while(low < high) {
+            int middle = (low + high + 1) >>> 1;
+
+            if(weight[byNumber[middle]] <= w) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+
+        return byNumber[low];
+    }
+
+    /**
+     * Exchanges two nodes (with their subtrees) and their numbers.
+     *
+     * @param a an int node
+     * @param b an int node
+     */
+    private void swap(int a, int b) {
+        int parentA = parent[a];
+        int parentB = parent[b];
+        int sideA = children[2 * parentA + 1] == a ? 1 : 0;
+        int sideB = children[2 * parentB + 1] == b ? 1 : 0;
+
+        setChild(parentA, sideA, b);
+        setChild(parentB, sideB, a);
+
+        int numberA = number[a];
+        number[a] = number[b];
+        number[b] = numberA;
+
+        byNumber[number[a]] = a;
+        byNumber[number[b]] = b;
+    }
+
+    /**
+     * Sets a child of a branch node.
+     *
+     * @param node an int branch node
+     * @param side an int 0 for left, 1 for right
+     * @param child an int child node
+     */
+    private void setChild(int node, int side, int child) {
+        children[2 * node + side] = child;
+        parent[child] = node;
+    }
+
+    /**
+     * Creates a node with zero weight.
+     *
+     * @param value an int symbol, NYT or BRANCH
+     * @param order an int node number
+     * @return an int node
+     */
+    private int newNode(int value, int order) {
+        int node = size++;
+
+        symbol[node] = value;
+        number[node] = order;
+        byNumber[order] = node;
+
+        return node;
+    }
+
+    /**
+     * Symbol of the NYT node
+     */
+    public static final int NYT = -1;
+
+    //
+    // Symbol of branch nodes
+    //
+    private static final int BRANCH = -2;
+
+    //
+    // Nodes
+    //
+    private final int[] parent;
+    private final int[] children;
+    private final long[] weight;
+    private final int[] symbol;
+    private int size;
+
+    //
+    // Node numbers and nodes by number
+    //
+    private final int[] number;
+    private final int[] byNumber;
+
+    //
+    // Special nodes and leaves by symbol
+    //
+    private final int root;
+    private int nyt;
+    private final int[] leaves;
+}
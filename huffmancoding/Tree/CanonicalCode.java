@@ -0,0 +1,222 @@
+/*
+ *  Copyright (C) 2016 Cezary Regec (SudoWaster)
+ * 
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package huffmancoding.Tree;
+
+import java.util.Arrays;
+
+/**
+ * Canonical Huffman code assignment. Codes depend only on code lengths:
+ * symbols are ordered by length, then by value, and every code is the
+ * previous one plus one, shifted left when the length grows.
+ *
+ * @author cezary
+ */
+public class CanonicalCode {
+
+    /**
+     * Create canonical codes for symbols with given code lengths.
+     *
+     * @param symbols an int array of symbols
+     * @param lengths an int array of their code lengths
+     * @return a CodeTable with symbols in canonical order
+     */
+    public static CodeTable create(int[] symbols, int[] lengths) {
+        int count = symbols.length;
+
+        //
+        // Order by length, then by symbol - pack both into a long so
+        // a primitive sort does the job
+        //
+        long[] order = new long[count];
+
+        for(int i = 0; i < count; i++) {
+            if(lengths[i] < 1 || lengths[i] > CodeTable.MAX_LENGTH) {
+                throw new IllegalArgumentException("Invalid code length "
+                        + lengths[i] + " of symbol " + symbols[i]);
+            }
+
+            order[i] = ((long) lengths[i] << 32) | symbols[i];
+        }
+
+        Arrays.sort(order);
+
+        //
+        // Assign consecutive codes and check they fit (Kraft inequality)
+        //
+        int[] sortedSymbols = new int[count];
+        long[] codes = new long[count];
+        int[] sortedLengths = new int[count];
+
+        long code = 0;
+        int previous = 0;
+
+        for(int i = 0; i < count; i++) {
+            int length = (int) (order[i] >>> 32);
+
+            code <<= length - previous;
+            previous = length;
+
+            if(code >>> length != 0) {
+                throw new IllegalArgumentException(
+                        "Code lengths do not form a prefix code");
+            }
+
+            sortedSymbols[i] = (int) order[i];
+            codes[i] = code;
+            sortedLengths[i] = length;
+
+            code++;
+        }
+
+        return new CodeTable(sortedSymbols, codes, sortedLengths);
+    }
+
+    /**
+     * Assigns canonical codes to a small dense alphabet in place, so codes
+     * for many small messages are made without allocation.
+     *
+     * @param lengths an int array of code lengths indexed by symbol, 0 for
+     *  symbols without a code
+     * @param codes a long array to put the codes in, indexed by symbol
+     * @param order an int array to put the symbols in, in canonical order
+     * @return an int amount of symbols with a code
+     */
+    public static int assign(int[] lengths, long[] codes, int[] order) {
+        //
+        // Order by length, then by symbol - packed like in create()
+        //
+        int count = 0;
+
+        for(int symbol = 0; symbol < lengths.length; symbol++) {
+            if(lengths[symbol] > CodeTable.MAX_LENGTH) {
+                throw new IllegalArgumentException("Invalid code length "
+                        + lengths[symbol] + " of symbol " + symbol);
+            }
+
+            if(lengths[symbol] > 0) {
+                order[count++] = lengths[symbol] << 24 | symbol;
+            }
+        }
+
+        Arrays.sort(order, 0, count);
+
+        long code = 0;
+        int previous = 0;
+
+        for(int i = 0; i < count; i++) {
+            int length = order[i] >>> 24;
+
+            code <<= length - previous;
+            previous = length;
+
+            if(code >>> length != 0) {
+                throw new IllegalArgumentException(
+                        "Code lengths do not form a prefix code");
+            }
+
+            order[i] &= 0xFFFFFF;
+            codes[order[i]] = code++;
+        }
+
+        return count;
+    }
+
+    /**
+     * Create canonical codes for a histogram of symbol counts. Lengths are
+     * optimal, limited to a maximum length if needed.
+     *
+     * @param counts an int array of counts indexed by symbol
+     * @param maxLength an int longest allowed code
+     * @return a CodeTable with codes of symbols that occur
+     */
+    public static CodeTable create(int[] counts, int maxLength) {
+        //
+        // Gather symbols that occur
+        //
+        int found = 0;
+
+        for(int count : counts) {
+            if(count > 0) {
+                found++;
+            }
+        }
+
+        int[] symbols = new int[found];
+        int[] symbolCounts = new int[found];
+
+        for(int symbol = 0, i = 0; i < found; symbol++) {
+            if(counts[symbol] > 0) {
+                symbols[i] = symbol;
+                symbolCounts[i++] = counts[symbol];
+            }
+        }
+
+        return create(symbols, symbolCounts, maxLength);
+    }
+
+    /**
+     * Create canonical codes for symbols with their counts. Used for
+     * sparse alphabets, where a histogram indexed by symbol is too big.
+     *
+     * @param symbols an int array of symbols
+     * @param counts an int array of their counts, all positive
+     * @param maxLength an int longest allowed code
+     * @return a CodeTable with codes of the symbols
+     */
+    public static CodeTable create(int[] symbols, int[] counts,
+            int maxLength) {
+        double[] weights = new double[counts.length];
+
+        for(int i = 0; i < counts.length; i++) {
+            weights[i] = counts[i];
+        }
+
+        //
+        // Limit the lengths only when the optimal ones are too long
+        //
+        int[] lengths = HuffmanTree.optimalLengths(weights);
+
+        for(int length : lengths) {
+            if(length > maxLength) {
+                lengths = LengthLimiter.limit(weights, maxLength);
+                break;
+            }
+        }
+
+        return create(symbols, lengths);
+    }
+
+    /**
+     * Create canonical codes with the same lengths as an existing table.
+     *
+     * @param table a CodeTable with any prefix code
+     * @return a CodeTable with canonical codes
+     */
+    public static CodeTable create(CodeTable table) {
+        int[] symbols = new int[table.size()];
+        int[] lengths = new int[table.size()];
+
+        for(int i = 0; i < symbols.length; i++) {
+            symbols[i] = table.getSymbol(i);
+            lengths[i] = table.getLength(symbols[i]);
+        }
+
+        return create(symbols, lengths);
+    }
+}
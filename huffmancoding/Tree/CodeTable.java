@@ -0,0 +1,229 @@
+/*
+ *  Copyright (C) 2016 Cezary Regec (SudoWaster)
+ * 
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package huffmancoding.Tree;
+
+import huffmancoding.TextTools.HuffmanCharacter;
+
+/**
+ * A primitive symbol to code lookup table. Every symbol has its code bits
+ * and code length packed into a single long, stored in 256 entry pages so
+ * that a lookup is two array reads and no allocation.
+ *
+ * @author cezary
+ */
+public class CodeTable {
+
+    /**
+     * The longest code the table (and the BitWriter) can hold
+     */
+    public static final int MAX_LENGTH = 56;
+
+    /**
+     * Create a table from parallel arrays of symbols, codes and lengths.
+     *
+     * @param symbols an int array of symbols
+     * @param codes a long array of code bits (right aligned)
+     * @param lengths an int array of code lengths
+     */
+    public CodeTable(int[] symbols, long[] codes, int[] lengths) {
+        this.symbols = symbols;
+
+        //
+        // Find the biggest symbol to know how many pages we need
+        //
+        int maxSymbol = 0;
+
+        for(int symbol : symbols) {
+            maxSymbol = Math.max(maxSymbol, symbol);
+        }
+
+        pages = new long[(maxSymbol >>> PAGE_BITS) + 1][];
+
+        //
+        // Fill the pages with packed entries
+        //
+        for(int i = 0; i < symbols.length; i++) {
+
+            if(lengths[i] > MAX_LENGTH) {
+                throw new IllegalArgumentException("Code of symbol "
+                        + symbols[i] + " is longer than " + MAX_LENGTH
+                        + " bits");
+            }
+
+            int page = symbols[i] >>> PAGE_BITS;
+
+            if(pages[page] == null) {
+                pages[page] = new long[1 << PAGE_BITS];
+            }
+
+            pages[page][symbols[i] & PAGE_MASK] =
+                    (codes[i] << LENGTH_BITS) | lengths[i];
+
+            maxLength = Math.max(maxLength, lengths[i]);
+        }
+    }
+
+    /**
+     * Create a table from characters with String ids, as returned by
+     * HuffmanTree.getAll().
+     *
+     * @param characters a HuffmanCharacter array with ids
+     * @return a CodeTable with the same codes
+     */
+    public static CodeTable fromCharacters(HuffmanCharacter[] characters) {
+        int[] symbols = new int[characters.length];
+        long[] codes = new long[characters.length];
+        int[] lengths = new int[characters.length];
+
+        for(int i = 0; i < characters.length; i++) {
+            //
+            // Parse the id bit by bit
+            //
+            String id = characters[i].getID();
+            long code = 0;
+
+            for(int j = 0; j < id.length(); j++) {
+                code = (code << 1) | (id.charAt(j) - '0');
+            }
+
+            symbols[i] = characters[i].getCharacter();
+            codes[i] = code;
+            lengths[i] = id.length();
+        }
+
+        return new CodeTable(symbols, codes, lengths);
+    }
+
+    /**
+     * Returns a packed code entry of a symbol, 0 if the symbol has no code.
+     *
+     * @param symbol an int symbol
+     * @return a long with code bits and length
+     */
+    public long getEntry(int symbol) {
+        int page = symbol >>> PAGE_BITS;
+
+        if(page >= pages.length || pages[page] == null) {
+            return 0;
+        }
+
+        return pages[page][symbol & PAGE_MASK];
+    }
+
+    /**
+     * Returns code bits of a symbol.
+     *
+     * @param symbol an int symbol
+     * @return a long with right aligned code bits
+     */
+    public long getCode(int symbol) {
+        return getEntry(symbol) >>> LENGTH_BITS;
+    }
+
+    /**
+     * Returns code length of a symbol.
+     *
+     * @param symbol an int symbol
+     * @return an int length, 0 if the symbol has no code
+     */
+    public int getLength(int symbol) {
+        return (int) getEntry(symbol) & LENGTH_MASK;
+    }
+
+    /**
+     * Checks if the symbol has a code.
+     *
+     * @param symbol an int symbol
+     * @return a boolean determining whether it is in the table
+     */
+    public boolean contains(int symbol) {
+        return getEntry(symbol) != 0;
+    }
+
+    /**
+     * Unpacks code bits from an entry returned by getEntry().
+     *
+     * @param entry a packed entry
+     * @return a long with code bits
+     */
+    public static long code(long entry) {
+        return entry >>> LENGTH_BITS;
+    }
+
+    /**
+     * Unpacks code length from an entry returned by getEntry().
+     *
+     * @param entry a packed entry
+     * @return an int length
+     */
+    public static int length(long entry) {
+        return (int) entry & LENGTH_MASK;
+    }
+
+    /**
+     * Returns the amount of symbols in the table.
+     *
+     * @return an int size
+     */
+    public int size() {
+        return symbols.length;
+    }
+
+    /**
+     * Returns a symbol in the order the table was created with.
+     *
+     * @param index an int position
+     * @return an int symbol
+     */
+    public int getSymbol(int index) {
+        return symbols[index];
+    }
+
+    /**
+     * Returns the length of the longest code.
+     *
+     * @return an int length
+     */
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    //
+    // Entry packing
+    //
+    private static final int LENGTH_BITS = 8;
+    private static final int LENGTH_MASK = (1 << LENGTH_BITS) - 1;
+
+    //
+    // Page layout
+    //
+    private static final int PAGE_BITS = 8;
+    private static final int PAGE_MASK = (1 << PAGE_BITS) - 1;
+
+    //
+    // Symbols in creation order
+    //
+    private final int[] symbols;
+
+    //
+    // Symbol lookup pages
+    //
+    private final long[][] pages;
+    private int maxLength;
+}
@@ -0,0 +1,266 @@
+/*
+ *  Copyright (C) 2016 Cezary Regec (SudoWaster)
+ * 
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package huffmancoding.Tree;
+
+import java.util.Arrays;
+
+/**
+ * A Huffman tree of canonical codes kept in flat arrays instead of node
+ * objects. Nodes are indexes: branches have the index of both children,
+ * leaves have the index of their symbol instead (stored as -2 - leaf in
+ * the left array). Leaves keep their symbol, code and code length in
+ * parallel arrays, in the order they were given.
+ *
+ * The root is node 0 and every parent comes before its children.
+ *
+ * @author cezary
+ */
+public class FlatTree {
+
+    /**
+     * Create a tree of canonical codes with given lengths.
+     *
+     * @param symbols an int array of symbols
+     * @param weights a double array of their weights (occurrences)
+     * @param lengths an int array of their code lengths
+     */
+    public FlatTree(int[] symbols, double[] weights, int[] lengths) {
+        int count = symbols.length;
+
+        this.table = CanonicalCode.create(symbols, lengths);
+        this.symbol = Arrays.copyOf(symbols, count);
+        this.code = new long[count];
+        this.length = new byte[count];
+
+        //
+        // A full tree has one branch less than leaves, a single leaf
+        // still hangs under a branch
+        //
+        int capacity = Math.max(2 * count - 1, 2);
+
+        this.left = new int[capacity];
+        this.right = new int[capacity];
+        this.weight = new double[capacity];
+
+        Arrays.fill(left, NONE);
+        Arrays.fill(right, NONE);
+        size = 1;
+
+        for(int i = 0; i < count; i++) {
+            long entry = table.getEntry(symbols[i]);
+
+            code[i] = CodeTable.code(entry);
+            length[i] = (byte) CodeTable.length(entry);
+
+            plant(i, weights[i]);
+        }
+
+        //
+        // Sum weights of branches, children always come after parents
+        //
+        for(int node = size - 1; node >= 0; node--) {
+            if(!isLeaf(node)) {
+                weight[node] = (left[node] != NONE ? weight[left[node]] : 0)
+                        + (right[node] != NONE ? weight[right[node]] : 0);
+            }
+        }
+    }
+
+    /**
+     * Returns the root node.
+     *
+     * @return an int node
+     */
+    public int getRoot() {
+        return 0;
+    }
+
+    /**
+     * Returns a child of a branch.
+     *
+     * @param node an int branch node
+     * @param side an int 0 for left, 1 for right
+     * @return an int node, NONE if missing
+     */
+    public int getChild(int node, int side) {
+        return side == 0 ? left[node] : right[node];
+    }
+
+    /**
+     * Checks if a node is a leaf.
+     *
+     * @param node an int node
+     * @return a boolean determining whether it is a leaf
+     */
+    public boolean isLeaf(int node) {
+        return left[node] <= LEAF;
+    }
+
+    /**
+     * Returns the leaf index of a leaf node.
+     *
+     * @param node an int leaf node
+     * @return an int leaf index
+     */
+    public int getLeaf(int node) {
+        return LEAF - left[node];
+    }
+
+    /**
+     * Returns the weight of a node - of a leaf or all leaves below.
+     *
+     * @param node an int node
+     * @return a double weight
+     */
+    public double getWeight(int node) {
+        return weight[node];
+    }
+
+    /**
+     * Returns the amount of nodes.
+     *
+     * @return an int amount
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the amount of leaves.
+     *
+     * @return an int amount
+     */
+    public int getLeafCount() {
+        return symbol.length;
+    }
+
+    /**
+     * Returns a symbol of a leaf.
+     *
+     * @param leaf an int leaf index
+     * @return an int symbol
+     */
+    public int getSymbol(int leaf) {
+        return symbol[leaf];
+    }
+
+    /**
+     * Returns a code of a leaf.
+     *
+     * @param leaf an int leaf index
+     * @return a long with right aligned code bits
+     */
+    public long getCode(int leaf) {
+        return code[leaf];
+    }
+
+    /**
+     * Returns a code length of a leaf.
+     *
+     * @param leaf an int leaf index
+     * @return an int amount of bits
+     */
+    public int getLength(int leaf) {
+        return length[leaf];
+    }
+
+    /**
+     * Returns codes of all leaves by symbol.
+     *
+     * @return a CodeTable
+     */
+    public CodeTable getCodeTable() {
+        return table;
+    }
+
+    /**
+     * Puts a leaf at the end of its code, creating missing branches.
+     *
+     * @param leaf an int leaf index
+     * @param leafWeight a double weight of the leaf
+     */
+    private void plant(int leaf, double leafWeight) {
+        int node = 0;
+
+        for(int i = length[leaf] - 1; i >= 0; i--) {
+            int[] side = ((code[leaf] >>> i) & 1) == 0 ? left : right;
+
+            if(side[node] == NONE) {
+                if(size == left.length) {
+                    //
+                    // Only codes that are not complete need more nodes
+                    //
+                    grow();
+                    side = ((code[leaf] >>> i) & 1) == 0 ? left : right;
+                }
+
+                side[node] = size++;
+            }
+
+            node = side[node];
+        }
+
+        left[node] = LEAF - leaf;
+        weight[node] = leafWeight;
+    }
+
+    /**
+     * Makes room for more nodes.
+     */
+    private void grow() {
+        int capacity = left.length * 2;
+
+        left = Arrays.copyOf(left, capacity);
+        right = Arrays.copyOf(right, capacity);
+        weight = Arrays.copyOf(weight, capacity);
+
+        Arrays.fill(left, size, capacity, NONE);
+        Arrays.fill(right, size, capacity, NONE);
+    }
+
+    /**
+     * Missing node
+     */
+    public static final int NONE = -1;
+
+    //
+    // Left child of leaves, minus the leaf index
+    //
+    private static final int LEAF = -2;
+
+    //
+    // Nodes
+    //
+    private int[] left;
+    private int[] right;
+    private double[] weight;
+    private int size;
+
+    //
+    // Leaves
+    //
+    private final int[] symbol;
+    private final long[] code;
+    private final byte[] length;
+
+    //
+    // Codes by symbol
+    //
+    private final CodeTable table;
+}
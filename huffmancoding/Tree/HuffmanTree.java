@@ -23,6 +23,9 @@ import huffmancoding.TextTools.HuffmanCharacter;
 import huffmancoding.TextTools.Interfaces.OccurrenceIndex;
 import huffmancoding.TextTools.Occurrence;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
 
 /**
  * A simple Huffman tree implementation.
@@ -59,6 +62,11 @@ public class HuffmanTree {
     }
 
     
+    /**
+     * Default code length limit, as much as a CodeTable can hold
+     */
+    public static final int DEFAULT_MAX_LENGTH = CodeTable.MAX_LENGTH;
+
     /**
      *
      * Default constructor.
@@ -71,17 +79,260 @@ public class HuffmanTree {
 
     /**
      * Constructor that also created a tree based on an array of
-     * CharacterOccurrences
+     * CharacterOccurrences. Code lengths are optimal (two lowest weight
+     * nodes are merged until one is left) and codes are canonical, so the
+     * tree can be recreated from the lengths alone.
      *
      * @param occurrences a CharacterOccurrences array
      */
     public HuffmanTree(CharacterOccurrence[] occurrences) {
+        this(occurrences, DEFAULT_MAX_LENGTH);
+    }
+
+    /**
+     * Constructor that creates an optimal tree with no code longer than
+     * a given length. If the optimal codes are too long, the lengths are
+     * recalculated with package-merge. The cost of the limit is reported
+     * by getLengthLimitCost().
+     *
+     * @param occurrences a CharacterOccurrences array
+     * @param maxLength an int longest allowed code
+     */
+    public HuffmanTree(CharacterOccurrence[] occurrences, int maxLength) {
         this();
 
+        if(maxLength < 1 || maxLength > CodeTable.MAX_LENGTH) {
+            throw new IllegalArgumentException("Code length limit "
+                    + maxLength + " is not between 1 and "
+                    + CodeTable.MAX_LENGTH);
+        }
+
         Occurrence.sort(occurrences);
 
+        double[] weights = new double[occurrences.length];
+
+        for(int i = 0; i < weights.length; i++) {
+            weights[i] = occurrences[i].getOccurrence();
+        }
+
+        //
+        // Start with optimal lengths and limit them only when needed
+        //
+        int[] lengths = optimalLengths(weights);
+        unlimitedAverageLength = LengthLimiter.averageLength(weights, lengths);
+
+        for(int length : lengths) {
+            if(length > maxLength) {
+                lengths = LengthLimiter.limit(weights, maxLength);
+                break;
+            }
+        }
+
+        averageLength = LengthLimiter.averageLength(weights, lengths);
+
+        plant(occurrences, lengths);
+    }
+
+    /**
+     * Constructor that creates a tree of canonical codes with given code
+     * lengths. Used to recreate a tree from a dictionary.
+     *
+     * @param occurrences a CharacterOccurrences array
+     * @param lengths an int array of code lengths of the occurrences
+     */
+    public HuffmanTree(CharacterOccurrence[] occurrences, int[] lengths) {
+        this();
+
+        plant(occurrences, lengths);
+    }
+
+    /**
+     * Returns the average code length weighted by occurrence.
+     *
+     * @return a double amount of bits per character
+     */
+    public double getAverageLength() {
+        return averageLength;
+    }
+
+    /**
+     * Returns the average code length the tree would have without a code
+     * length limit.
+     *
+     * @return a double amount of bits per character
+     */
+    public double getUnlimitedAverageLength() {
+        return unlimitedAverageLength;
+    }
+
+    /**
+     * Returns how much bigger the output gets because of the code length
+     * limit, 0.01 means 1% more bits.
+     *
+     * @return a double relative cost
+     */
+    public double getLengthLimitCost() {
+        if(unlimitedAverageLength == 0) {
+            return 0;
+        }
+
+        return averageLength / unlimitedAverageLength - 1;
+    }
+
+    /**
+     * Returns the tree in flat arrays, as used by the coders.
+     *
+     * @return a FlatTree, null for trees made with insert()
+     */
+    public FlatTree getFlatTree() {
+        return flatTree;
+    }
+
+    /**
+     * Returns canonical codes of all characters, without walking nodes.
+     *
+     * @return a CodeTable, null for trees made with insert()
+     */
+    public CodeTable getCodeTable() {
+        return flatTree == null ? null : flatTree.getCodeTable();
+    }
+
+    /**
+     * Plants every leaf on the path of its canonical code.
+     *
+     * @param occurrences a CharacterOccurrences array
+     * @param lengths an int array of code lengths of the occurrences
+     */
+    private void plant(CharacterOccurrence[] occurrences, int[] lengths) {
+        int[] symbols = new int[occurrences.length];
+        double[] weights = new double[occurrences.length];
+
+        for(int i = 0; i < occurrences.length; i++) {
+            originalOccurrences.add(occurrences[i]);
+            symbols[i] = occurrences[i].getCharacter();
+            weights[i] = occurrences[i].getOccurrence();
+        }
+
+        flatTree = new FlatTree(symbols, weights, lengths);
+        CodeTable codes = flatTree.getCodeTable();
+
         for(CharacterOccurrence element : occurrences) {
-            insert(element);
+            plant(new HuffmanNode(element),
+                    codes.getCode(element.getCharacter()),
+                    codes.getLength(element.getCharacter()));
+        }
+
+        updateValues(root);
+    }
+
+    /**
+     * Calculates optimal code lengths with a heap of node indexes. Leaves
+     * are 0 to n - 1, merged nodes follow. Equal weights are taken in the
+     * order of indexes, so the result is deterministic.
+     *
+     * @param weights a double array of leaf weights
+     * @return an int array of code lengths
+     */
+    static int[] optimalLengths(double[] weights) {
+        int count = weights.length;
+        int[] lengths = new int[count];
+
+        if(count == 1) {
+            //
+            // A lonely character still needs a bit
+            //
+            lengths[0] = 1;
+        }
+
+        if(count <= 1) {
+            return lengths;
+        }
+
+        final double[] nodes = Arrays.copyOf(weights, 2 * count - 1);
+        int[] parents = new int[nodes.length];
+
+        PriorityQueue<Integer> heap = new PriorityQueue<Integer>(count,
+                new Comparator<Integer>() {
+                    public int compare(Integer a, Integer b) {
+                        int result = Double.compare(nodes[a], nodes[b]);
+
+                        return result != 0 ? result : a.compareTo(b);
+                    }
+                });
+
+        for(int i = 0; i < count; i++) {
+            heap.add(i);
+        }
+
+        //
+        // Merge the two lightest nodes until only the root is left
+        //
+        for(int node = count; node < nodes.length; node++) {
+            int left = heap.poll();
+            int right = heap.poll();
+
+            nodes[node] = nodes[left] + nodes[right];
+            parents[left] = node;
+            parents[right] = node;
+
+            heap.add(node);
+        }
+
+        //
+        // Depth of a node is its parent's depth plus one, parents always
+        // come later so go backwards from the root
+        //
+        int[] depths = new int[nodes.length];
+
+        for(int node = nodes.length - 2; node >= 0; node--) {
+            depths[node] = depths[parents[node]] + 1;
+        }
+
+        System.arraycopy(depths, 0, lengths, 0, count);
+
+        return lengths;
+    }
+
+    /**
+     * Puts a leaf at the end of a path, creating missing branches.
+     *
+     * @param leaf a HuffmanNode leaf
+     * @param code a long path, the most significant bit goes first
+     * @param length an int path length
+     */
+    private void plant(HuffmanNode leaf, long code, int length) {
+        HuffmanNode node = root;
+
+        for(int i = length - 1; i > 0; i--) {
+            int side = (int) (code >>> i) & 1;
+
+            if(node.getNode(side) == null) {
+                node.setNode(side, new HuffmanNode());
+            }
+
+            node = node.getNode(side);
+        }
+
+        node.setNode((int) code & 1, leaf);
+    }
+
+    /**
+     * Recalculates branch values after the tree has been planted.
+     *
+     * @param node a HuffmanNode to update
+     */
+    private static void updateValues(HuffmanNode node) {
+        for(int side = 0; side < 2; side++) {
+            HuffmanNode child = node.getNode(side);
+
+            if(child != null && !child.isLeaf()) {
+                updateValues(child);
+            }
+
+            //
+            // Setting a node sums the values again
+            //
+            node.setNode(side, child);
         }
     }
 
@@ -98,6 +349,11 @@ public class HuffmanTree {
         //
         this.originalOccurrences.add(element);
 
+        //
+        // Codes of the planted tree no longer hold
+        //
+        this.flatTree = null;
+
         //
         // Prepare a node to insert
         //
@@ -200,7 +456,8 @@ public class HuffmanTree {
     }
 
     /**
-     * Get all CharacterOccurrences in the order of insertion.
+     * Get all CharacterOccurrences in the order of insertion. Ids come
+     * from the code table, no nodes are searched.
      *
      * @return a HuffmanCharacter array with ids
      */
@@ -216,20 +473,44 @@ public class HuffmanTree {
             // Search for every character id - add full info to array
             //
             CharacterOccurrence currentChar = originalOccurrences.get(i);
-            result[i] = get(currentChar.getCharacter());
+
+            if(flatTree != null) {
+                result[i] = character(currentChar,
+                        flatTree.getCodeTable().getEntry(
+                        currentChar.getCharacter()));
+            } else {
+                result[i] = get(currentChar.getCharacter());
+            }
         }
         
         return result;
     }
 
     /**
-     * Search and return CharacterOccurrence from the tree basing on a character
+     * Search and return CharacterOccurrence from the tree basing on a character.
+     * Codes are looked up in the code table in constant time.
      *
      * @param character a char searched in the tree
      * @return a corresponding CharacterOccurrence
      */
     public HuffmanCharacter get(char character) {
-        return get(root, character, "");
+        if(flatTree == null) {
+            return get(root, character, "");
+        }
+
+        long entry = flatTree.getCodeTable().getEntry(character);
+
+        if(CodeTable.length(entry) == 0) {
+            return null;
+        }
+
+        //
+        // The code leads to the leaf with the weight
+        //
+        int node = find(CodeTable.code(entry), CodeTable.length(entry));
+
+        return character(new CharacterOccurrence(character,
+                flatTree.getWeight(node)), entry);
     }
 
     /**
@@ -239,7 +520,77 @@ public class HuffmanTree {
      * @return a corresponding CharacterOccurrence
      */
     public HuffmanCharacter get(String id) {
-        return get(root, '\n', id);
+        if(flatTree == null) {
+            return get(root, '\n', id);
+        }
+
+        //
+        // Follow the id, it has to end at a leaf
+        //
+        int node = flatTree.getRoot();
+
+        for(int i = 0; i < id.length(); i++) {
+            if(flatTree.isLeaf(node)) {
+                return null;
+            }
+
+            node = flatTree.getChild(node, id.charAt(i) - '0');
+
+            if(node == FlatTree.NONE) {
+                return null;
+            }
+        }
+
+        if(!flatTree.isLeaf(node)) {
+            return null;
+        }
+
+        int leaf = flatTree.getLeaf(node);
+
+        return character(new CharacterOccurrence(
+                (char) flatTree.getSymbol(leaf), flatTree.getWeight(node)),
+                flatTree.getCodeTable().getEntry(flatTree.getSymbol(leaf)));
+    }
+
+    /**
+     * Finds the node at the end of a code.
+     *
+     * @param code a long with right aligned code bits
+     * @param length an int code length
+     * @return an int FlatTree node
+     */
+    private int find(long code, int length) {
+        int node = flatTree.getRoot();
+
+        for(int i = length - 1; i >= 0; i--) {
+            node = flatTree.getChild(node, (int) (code >>> i) & 1);
+        }
+
+        return node;
+    }
+
+    /**
+     * Makes a search result with a String id of a code table entry.
+     *
+     * @param occurrence an OccurrenceIndex of the character
+     * @param entry a long CodeTable entry
+     * @return a HuffmanCharacter with the id
+     */
+    private static HuffmanCharacter character(OccurrenceIndex occurrence,
+            long entry) {
+        int length = CodeTable.length(entry);
+        long code = CodeTable.code(entry);
+
+        char[] id = new char[length];
+
+        for(int i = 0; i < length; i++) {
+            id[i] = (char) ('0' + ((code >>> (length - 1 - i)) & 1));
+        }
+
+        HuffmanCharacter result = new HuffmanCharacter(occurrence);
+        result.id = new String(id);
+
+        return result;
     }
 
     /**
@@ -374,4 +725,15 @@ public class HuffmanTree {
     // Original occurrences for tree recreation
     //
     private ArrayList<CharacterOccurrence> originalOccurrences;
+
+    //
+    // The same tree in flat arrays
+    //
+    private FlatTree flatTree;
+
+    //
+    // Average code lengths with and without the length limit
+    //
+    private double averageLength;
+    private double unlimitedAverageLength;
 }
@@ -0,0 +1,151 @@
+/*
+ *  Copyright (C) 2016 Cezary Regec (SudoWaster)
+ * 
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package huffmancoding.Tree;
+
+import huffmancoding.TextTools.Occurrence;
+import java.util.Arrays;
+
+/**
+ * Length limited code lengths using the package-merge algorithm. The
+ * result is the cheapest prefix code with no code longer than the limit.
+ *
+ * @author cezary
+ */
+public class LengthLimiter {
+
+    /**
+     * Calculates code lengths for weights with a maximum length.
+     *
+     * @param weights a double array of symbol weights
+     * @param maxLength an int longest allowed code
+     * @return an int array of code lengths, in the order of weights
+     */
+    public static int[] limit(double[] weights, int maxLength) {
+        int count = weights.length;
+        int[] lengths = new int[count];
+
+        if(count <= 1) {
+            Arrays.fill(lengths, 1);
+
+            return lengths;
+        }
+
+        if(maxLength < 31 && count > (1 << maxLength)) {
+            throw new IllegalArgumentException(count
+                    + " symbols do not fit in codes of " + maxLength + " bits");
+        }
+
+        //
+        // Sort leaves by weight, ties by index
+        //
+        int[] order = Occurrence.sort(weights);
+
+        //
+        // Every level is a sorted list of leaves and packages. An item is
+        // a leaf index, or -1 for a package of two items of the level
+        // below. Packages are made of consecutive items from the start,
+        // so the first p packages always use the first 2p items.
+        //
+        int[][] items = new int[maxLength][];
+        int[] sizes = new int[maxLength];
+
+        items[0] = order.clone();
+        sizes[0] = count;
+
+        double[] previous = new double[count];
+
+        for(int i = 0; i < count; i++) {
+            previous[i] = weights[order[i]];
+        }
+
+        for(int level = 1; level < maxLength; level++) {
+            int packages = sizes[level - 1] / 2;
+
+            items[level] = new int[count + packages];
+            double[] current = new double[count + packages];
+
+            //
+            // Merge leaves with packages of the previous level
+            //
+            int leaf = 0;
+            int pack = 0;
+            int size = 0;
+
+            while(leaf < count || pack < packages) {
+                double packWeight = pack < packages ?
+                        previous[2 * pack] + previous[2 * pack + 1] : 0;
+
+                if(pack >= packages || (leaf < count
+                        && weights[order[leaf]] <= packWeight)) {
+                    current[size] = weights[order[leaf]];
+                    items[level][size++] = order[leaf++];
+                } else {
+                    current[size] = packWeight;
+                    items[level][size++] = -1;
+                    pack++;
+                }
+            }
+
+            sizes[level] = size;
+            previous = current;
+        }
+
+        //
+        // Take the 2n - 2 cheapest items of the last level, every leaf
+        // taken adds a bit to its code, every package takes two items
+        // from the level below
+        //
+        int take = 2 * count - 2;
+
+        for(int level = maxLength - 1; level >= 0; level--) {
+            int packages = 0;
+
+            for(int i = 0; i < take; i++) {
+                if(items[level][i] < 0) {
+                    packages++;
+                } else {
+                    lengths[items[level][i]]++;
+                }
+            }
+
+            take = 2 * packages;
+        }
+
+        return lengths;
+    }
+
+    /**
+     * Calculates the average code length of weighted symbols.
+     *
+     * @param weights a double array of symbol weights
+     * @param lengths an int array of code lengths
+     * @return a double amount of bits per symbol
+     */
+    public static double averageLength(double[] weights, int[] lengths) {
+        double total = 0;
+        double bits = 0;
+
+        for(int i = 0; i < weights.length; i++) {
+            total += weights[i];
+            bits += weights[i] * lengths[i];
+        }
+
+        return total > 0 ? bits / total : 0;
+    }
+}
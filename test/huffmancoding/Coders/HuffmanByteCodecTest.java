@@ -0,0 +1,94 @@
+/*
+ *  Copyright (C) 2016 Cezary Regec (SudoWaster)
+ * 
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package huffmancoding.Coders;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.junit.Test;
+
+/**
+ * Tests of a codec reused for many messages.
+ *
+ * @author cezary
+ */
+public class HuffmanByteCodecTest {
+
+    @Test
+    public void roundTrip() {
+        byte[] message = "the quick brown fox jumps over the lazy dog"
+                .getBytes(StandardCharsets.UTF_8);
+
+        assertArrayEquals(message, roundTrip(new HuffmanByteCodec(), message));
+    }
+
+    @Test
+    public void emptyMessageAfterAnother() {
+        HuffmanByteCodec codec = new HuffmanByteCodec();
+        byte[] message = new byte[256];
+
+        for(int i = 0; i < message.length; i++) {
+            message[i] = (byte) i;
+        }
+
+        roundTrip(codec, message);
+
+        //
+        // Only the size and an empty header, nothing of the message before
+        //
+        byte[] encoded = new byte[HuffmanByteCodec.maxEncodedLength(0)];
+
+        assertEquals(5, codec.encode(new byte[0], 0, 0, encoded, 0));
+        assertArrayEquals(new byte[5], Arrays.copyOf(encoded, 5));
+        assertEquals(0, roundTrip(codec, new byte[0]).length);
+    }
+
+    @Test
+    public void sameOutputAsNewCodec() {
+        HuffmanByteCodec codec = new HuffmanByteCodec();
+        byte[] first = "aaaaaaaaaaaaaaaabbbbbbbbcccd"
+                .getBytes(StandardCharsets.UTF_8);
+        byte[] second = "xyz".getBytes(StandardCharsets.UTF_8);
+
+        roundTrip(codec, first);
+
+        assertArrayEquals(encode(new HuffmanByteCodec(), second),
+                encode(codec, second));
+    }
+
+    private static byte[] encode(HuffmanByteCodec codec, byte[] message) {
+        byte[] encoded =
+                new byte[HuffmanByteCodec.maxEncodedLength(message.length)];
+        int size = codec.encode(message, 0, message.length, encoded, 0);
+
+        return Arrays.copyOf(encoded, size);
+    }
+
+    private static byte[] roundTrip(HuffmanByteCodec codec, byte[] message) {
+        byte[] encoded = encode(codec, message);
+        byte[] decoded = new byte[HuffmanByteCodec.getDecodedLength(
+                encoded, 0)];
+
+        codec.decode(encoded, 0, encoded.length, decoded, 0);
+
+        return decoded;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ *  Copyright (C) 2016 Cezary Regec (SudoWaster)
+ * 
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package huffmancoding.Coders;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertSame;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.junit.Test;
+
+/**
+ * Tests of lending codecs.
+ *
+ * @author cezary
+ */
+public class HuffmanCodecPoolTest {
+
+    @Test(expected = IllegalStateException.class)
+    public void releaseTwice() {
+        HuffmanCodecPool pool = new HuffmanCodecPool();
+        HuffmanByteCodec codec = pool.acquire();
+
+        pool.release(codec);
+        pool.release(codec);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void releaseForeign() {
+        new HuffmanCodecPool().release(new HuffmanByteCodec());
+    }
+
+    @Test
+    public void sharedDictionary() {
+        byte[] message = "abracadabra".getBytes(StandardCharsets.UTF_8);
+        HuffmanDictionary dictionary = HuffmanDictionary.train(
+                new byte[][] {message}, 1);
+        HuffmanCodecPool pool = new HuffmanCodecPool(2, dictionary);
+
+        HuffmanByteCodec first = pool.acquire();
+        HuffmanByteCodec second = pool.acquire();
+
+        assertSame(first.getDictionary(), second.getDictionary());
+
+        byte[] encoded =
+                new byte[HuffmanByteCodec.maxEncodedLength(message.length)];
+        int size = first.encode(message, 0, message.length, encoded, 0);
+        byte[] decoded = new byte[message.length];
+
+        second.decode(Arrays.copyOf(encoded, size), 0, size, decoded, 0);
+
+        assertArrayEquals(message, decoded);
+    }
+}
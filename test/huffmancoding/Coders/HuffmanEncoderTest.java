@@ -0,0 +1,96 @@
+/*
+ *  Copyright (C) 2016 Cezary Regec (SudoWaster)
+ * 
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package huffmancoding.Coders;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests of parallel encoding, which must match encode() byte for byte.
+ *
+ * @author cezary
+ */
+public class HuffmanEncoderTest {
+
+    @Test
+    public void empty() {
+        assertParallel("");
+    }
+
+    @Test
+    public void singleCharacter() {
+        assertParallel("a");
+    }
+
+    @Test
+    public void exactlyOneSlice() {
+        assertParallel(createText(HuffmanEncoder.SLICE));
+    }
+
+    @Test
+    public void oneMoreThanASlice() {
+        assertParallel(createText(HuffmanEncoder.SLICE + 1));
+    }
+
+    @Test
+    public void nonLatin1() {
+        assertParallel("zażółć gęślą jaźń, 中文, ελληνικά");
+    }
+
+    @After
+    public void shutDown() {
+        executor.shutdown();
+    }
+
+    private void assertParallel(String text) {
+        HuffmanEncoder encoder = new HuffmanEncoder(text, true, true);
+        byte[] encoded = encoder.encode(executor);
+
+        assertArrayEquals(encoder.encode(), encoded);
+
+        Byte[] boxed = new Byte[encoded.length];
+
+        for(int i = 0; i < encoded.length; i++) {
+            boxed[i] = encoded[i];
+        }
+
+        assertEquals(text, new HuffmanDecoder(boxed,
+                encoder.getDictionary(), true, true).getDecoded());
+    }
+
+    private static String createText(int size) {
+        String letters = "eeeeetttaaoinshrdlu ąęśżźćńół中文";
+        Random random = new Random(42);
+        char[] text = new char[size];
+
+        for(int i = 0; i < size; i++) {
+            text[i] = letters.charAt(random.nextInt(letters.length()));
+        }
+
+        return new String(text);
+    }
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(3);
+}
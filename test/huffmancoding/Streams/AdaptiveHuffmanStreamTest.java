@@ -0,0 +1,187 @@
+/*
+ *  Copyright (C) 2016 Cezary Regec (SudoWaster)
+ * 
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package huffmancoding.Streams;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Round trips of AdaptiveHuffmanOutputStream through
+ * AdaptiveHuffmanInputStream.
+ *
+ * @author cezary
+ */
+public class AdaptiveHuffmanStreamTest {
+
+    @Test
+    public void empty() throws IOException {
+        assertRoundTrip(new byte[0]);
+    }
+
+    @Test
+    public void singleByte() throws IOException {
+        assertRoundTrip(new byte[] {42});
+    }
+
+    @Test
+    public void everyByteValue() throws IOException {
+        byte[] data = new byte[512];
+
+        for(int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+
+        assertRoundTrip(data);
+    }
+
+    @Test
+    public void manyBuffers() throws IOException {
+        assertRoundTrip(createData(10 * BUFFER + 1));
+    }
+
+    @Test
+    public void nonLatin1() throws IOException {
+        assertRoundTrip("zażółć gęślą jaźń, 中文, ελληνικά"
+                .getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void flushedBytesBeforeTheEnd() throws IOException {
+        byte[] data = createData(1000);
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        OutputStream out = new AdaptiveHuffmanOutputStream(sink, BUFFER);
+
+        out.write(data);
+        out.flush();
+
+        //
+        // The rest of the stream has not arrived, reading on would block
+        //
+        InputStream source = new ByteArrayInputStream(sink.toByteArray()) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                if(available() == 0) {
+                    throw new IllegalStateException("Read would block");
+                }
+
+                return super.read(b, off, len);
+            }
+        };
+
+        InputStream in = new AdaptiveHuffmanInputStream(source);
+        byte[] result = new byte[data.length];
+        int count = in.read(result);
+
+        //
+        // Up to 7 bits of the last code wait for the next byte
+        //
+        assertTrue(count > data.length - 8);
+        assertArrayEquals(Arrays.copyOf(data, count),
+                Arrays.copyOf(result, count));
+    }
+
+    @Test(expected = IOException.class)
+    public void writeAfterClose() throws IOException {
+        OutputStream out =
+                new AdaptiveHuffmanOutputStream(new ByteArrayOutputStream());
+
+        out.close();
+        out.write(1);
+    }
+
+    private static void assertRoundTrip(byte[] data) throws IOException {
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        OutputStream out = new AdaptiveHuffmanOutputStream(sink, BUFFER);
+
+        out.write(data);
+        out.close();
+
+        byte[] compressed = sink.toByteArray();
+
+        assertArrayEquals(data, read(compressed, 8192, 1000));
+        assertArrayEquals(data, read(compressed, 1, 3));
+
+        //
+        // Byte by byte on both sides
+        //
+        sink.reset();
+        out = new AdaptiveHuffmanOutputStream(sink, BUFFER);
+
+        for(byte b : data) {
+            out.write(b);
+        }
+
+        out.close();
+
+        assertArrayEquals(compressed, sink.toByteArray());
+
+        InputStream in = new AdaptiveHuffmanInputStream(
+                new ByteArrayInputStream(compressed));
+
+        for(byte b : data) {
+            assertEquals(b & 0xFF, in.read());
+        }
+
+        assertEquals(-1, in.read());
+    }
+
+    private static byte[] read(byte[] compressed, int bufferSize,
+            int readSize) throws IOException {
+        InputStream in = new AdaptiveHuffmanInputStream(
+                new ByteArrayInputStream(compressed), bufferSize);
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        byte[] buffer = new byte[readSize];
+        int read;
+
+        while((read = in.read(buffer)) != -1) {
+            result.write(buffer, 0, read);
+        }
+
+        return result.toByteArray();
+    }
+
+    private static byte[] createData(int size) {
+        byte[] letters = "eeeeetttaaoinshrdlu ąęśżźćńół中文"
+                .getBytes(StandardCharsets.UTF_8);
+        Random random = new Random(42);
+        byte[] data = new byte[size];
+
+        for(int i = 0; i < size; i++) {
+            data[i] = letters[random.nextInt(letters.length)];
+        }
+
+        return data;
+    }
+
+    //
+    // Compressed bytes kept by the output stream
+    //
+    private static final int BUFFER = 64;
+}
@@ -0,0 +1,137 @@
+/*
+ *  Copyright (C) 2016 Cezary Regec (SudoWaster)
+ * 
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package huffmancoding.Streams;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Round trips of BlockContainer, whole and by ranges.
+ *
+ * @author cezary
+ */
+public class BlockContainerTest {
+
+    @Test
+    public void empty() {
+        BlockContainer container = encode(new byte[0], false);
+
+        assertEquals(0, container.getBlockCount());
+        assertArrayEquals(new byte[0], container.decodeAll(executor));
+        assertArrayEquals(new byte[0], container.decode(0, 0));
+    }
+
+    @Test
+    public void singleByte() {
+        assertRoundTrip(new byte[] {42});
+    }
+
+    @Test
+    public void exactlyOneBlock() {
+        assertRoundTrip(createData(BLOCK));
+    }
+
+    @Test
+    public void oneMoreThanABlock() {
+        assertRoundTrip(createData(BLOCK + 1));
+    }
+
+    @Test
+    public void nonLatin1() {
+        assertRoundTrip("zażółć gęślą jaźń, 中文, ελληνικά"
+                .getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void rangesAroundBlockEdges() {
+        byte[] data = createData(3 * BLOCK + 1);
+        int[] starts = {0, 1, BLOCK - 1, BLOCK, BLOCK + 1, 3 * BLOCK,
+                data.length};
+
+        for(boolean sharedTable : new boolean[] {false, true}) {
+            BlockContainer container = encode(data, sharedTable);
+
+            for(int from : starts) {
+                for(int to : starts) {
+                    if(to < from) {
+                        continue;
+                    }
+
+                    assertArrayEquals("Range " + from + "-" + to,
+                            Arrays.copyOfRange(data, from, to),
+                            container.decode(from, to - from));
+                }
+            }
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void rangePastTheEnd() {
+        encode(createData(BLOCK), false).decode(BLOCK - 1, 2);
+    }
+
+    @After
+    public void shutDown() {
+        executor.shutdown();
+    }
+
+    private void assertRoundTrip(byte[] data) {
+        for(boolean sharedTable : new boolean[] {false, true}) {
+            BlockContainer container = encode(data, sharedTable);
+
+            assertEquals(data.length, container.getSize());
+            assertArrayEquals(data, container.decodeAll(executor));
+            assertArrayEquals(data, container.decode(0, data.length));
+        }
+    }
+
+    private BlockContainer encode(byte[] data, boolean sharedTable) {
+        return new BlockContainer(BlockContainer.encode(data, BLOCK,
+                sharedTable, HuffmanOutputStream.DEFAULT_MAX_LENGTH,
+                executor));
+    }
+
+    private static byte[] createData(int size) {
+        byte[] letters = "eeeeetttaaoinshrdlu ąęśżźćńół中文"
+                .getBytes(StandardCharsets.UTF_8);
+        Random random = new Random(42);
+        byte[] data = new byte[size];
+
+        for(int i = 0; i < size; i++) {
+            data[i] = letters[random.nextInt(letters.length)];
+        }
+
+        return data;
+    }
+
+    //
+    // Bytes in a block
+    //
+    private static final int BLOCK = 1000;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(3);
+}
@@ -0,0 +1,185 @@
+/*
+ *  Copyright (C) 2016 Cezary Regec (SudoWaster)
+ * 
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package huffmancoding.Streams;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Round trips of HuffmanInputStream with small buffers and small reads.
+ *
+ * @author cezary
+ */
+public class HuffmanInputStreamTest {
+
+    @Test
+    public void empty() throws IOException {
+        assertRoundTrip(new byte[0]);
+    }
+
+    @Test
+    public void singleByte() throws IOException {
+        assertRoundTrip(new byte[] {42});
+    }
+
+    @Test
+    public void exactlyOneBlock() throws IOException {
+        assertRoundTrip(createData(BLOCK));
+    }
+
+    @Test
+    public void oneMoreThanABlock() throws IOException {
+        assertRoundTrip(createData(BLOCK + 1));
+    }
+
+    @Test
+    public void nonLatin1() throws IOException {
+        assertRoundTrip("zażółć gęślą jaźń, 中文, ελληνικά"
+                .getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void flushedBlockBeforeTheEnd() throws IOException {
+        //
+        // Many rare bytes make the decode table wide, and the last code
+        // is short, so a lookup would peek past the flushed bits
+        //
+        byte[] data = new byte[500];
+
+        for(int i = 0; i < 200; i++) {
+            data[i] = (byte) i;
+        }
+
+        Arrays.fill(data, 200, data.length, (byte) 'a');
+
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        HuffmanOutputStream out = new HuffmanOutputStream(sink);
+
+        out.write(data);
+        out.flush();
+
+        //
+        // The rest of the stream has not arrived, reading on would block
+        //
+        final byte[] compressed = sink.toByteArray();
+        InputStream source = new ByteArrayInputStream(compressed) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                if(available() == 0) {
+                    throw new IllegalStateException("Read would block");
+                }
+
+                return super.read(b, off, len);
+            }
+        };
+
+        byte[] result = new byte[data.length];
+        InputStream in = new HuffmanInputStream(source);
+
+        for(int i = 0; i < result.length; ) {
+            i += in.read(result, i, result.length - i);
+        }
+
+        assertArrayEquals(data, result);
+    }
+
+    @Test(expected = IOException.class)
+    public void truncated() throws IOException {
+        byte[] compressed = compress(createData(BLOCK));
+
+        read(Arrays.copyOf(compressed, compressed.length - 6), 1, 1000);
+    }
+
+    private static void assertRoundTrip(byte[] data) throws IOException {
+        byte[] compressed = compress(data);
+
+        assertArrayEquals(data, read(compressed, 8192, 1000));
+        assertArrayEquals(data, read(compressed, 1, 3));
+        assertArrayEquals(data, readByteByByte(compressed));
+    }
+
+    private static byte[] compress(byte[] data) throws IOException {
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        HuffmanOutputStream out = new HuffmanOutputStream(sink, BLOCK,
+                HuffmanOutputStream.DEFAULT_MAX_LENGTH);
+
+        out.write(data);
+        out.close();
+
+        return sink.toByteArray();
+    }
+
+    private static byte[] read(byte[] compressed, int bufferSize,
+            int readSize) throws IOException {
+        InputStream in = new HuffmanInputStream(
+                new ByteArrayInputStream(compressed), bufferSize);
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        byte[] buffer = new byte[readSize];
+        int read;
+
+        while((read = in.read(buffer)) != -1) {
+            result.write(buffer, 0, read);
+        }
+
+        assertEquals(-1, in.read());
+
+        return result.toByteArray();
+    }
+
+    private static byte[] readByteByByte(byte[] compressed)
+            throws IOException {
+        InputStream in = new HuffmanInputStream(
+                new ByteArrayInputStream(compressed));
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        int b;
+
+        while((b = in.read()) != -1) {
+            result.write(b);
+        }
+
+        return result.toByteArray();
+    }
+
+    private static byte[] createData(int size) {
+        byte[] letters = "eeeeetttaaoinshrdlu ąęśżźćńół中文"
+                .getBytes(StandardCharsets.UTF_8);
+        Random random = new Random(42);
+        byte[] data = new byte[size];
+
+        for(int i = 0; i < size; i++) {
+            data[i] = letters[random.nextInt(letters.length)];
+        }
+
+        return data;
+    }
+
+    //
+    // Bytes in a block
+    //
+    private static final int BLOCK = 4096;
+}
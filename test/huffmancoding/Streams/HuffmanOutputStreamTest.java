@@ -0,0 +1,151 @@
+/*
+ *  Copyright (C) 2016 Cezary Regec (SudoWaster)
+ * 
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package huffmancoding.Streams;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Round trips of HuffmanOutputStream through HuffmanInputStream.
+ *
+ * @author cezary
+ */
+public class HuffmanOutputStreamTest {
+
+    @Test
+    public void empty() throws IOException {
+        byte[] compressed = compress(new byte[0], false);
+
+        //
+        // Nothing but the end of stream mark
+        //
+        assertArrayEquals(new byte[4], compressed);
+        assertArrayEquals(new byte[0], decompress(compressed));
+    }
+
+    @Test
+    public void singleByte() throws IOException {
+        assertRoundTrip(new byte[] {42});
+    }
+
+    @Test
+    public void exactlyOneBlock() throws IOException {
+        assertRoundTrip(createData(BLOCK));
+    }
+
+    @Test
+    public void oneMoreThanABlock() throws IOException {
+        assertRoundTrip(createData(BLOCK + 1));
+    }
+
+    @Test
+    public void nonLatin1() throws IOException {
+        assertRoundTrip("zażółć gęślą jaźń, 中文, ελληνικά"
+                .getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void flushInTheMiddle() throws IOException {
+        byte[] data = createData(BLOCK + 10);
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        HuffmanOutputStream out = new HuffmanOutputStream(sink, BLOCK,
+                HuffmanOutputStream.DEFAULT_MAX_LENGTH);
+
+        out.write(data, 0, 10);
+        out.flush();
+        out.write(data, 10, data.length - 10);
+        out.close();
+
+        assertArrayEquals(data, decompress(sink.toByteArray()));
+    }
+
+    @Test(expected = IOException.class)
+    public void writeAfterClose() throws IOException {
+        HuffmanOutputStream out =
+                new HuffmanOutputStream(new ByteArrayOutputStream());
+
+        out.close();
+        out.write(1);
+    }
+
+    private static void assertRoundTrip(byte[] data) throws IOException {
+        assertArrayEquals(data, decompress(compress(data, false)));
+        assertArrayEquals(data, decompress(compress(data, true)));
+    }
+
+    private static byte[] compress(byte[] data, boolean byteByByte)
+            throws IOException {
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        HuffmanOutputStream out = new HuffmanOutputStream(sink, BLOCK,
+                HuffmanOutputStream.DEFAULT_MAX_LENGTH);
+
+        if(byteByByte) {
+            for(byte b : data) {
+                out.write(b);
+            }
+        } else {
+            out.write(data);
+        }
+
+        out.close();
+
+        return sink.toByteArray();
+    }
+
+    private static byte[] decompress(byte[] compressed) throws IOException {
+        InputStream in = new HuffmanInputStream(
+                new ByteArrayInputStream(compressed));
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1000];
+        int read;
+
+        while((read = in.read(buffer)) != -1) {
+            result.write(buffer, 0, read);
+        }
+
+        in.close();
+
+        return result.toByteArray();
+    }
+
+    private static byte[] createData(int size) {
+        byte[] letters = "eeeeetttaaoinshrdlu ąęśżźćńół中文"
+                .getBytes(StandardCharsets.UTF_8);
+        Random random = new Random(42);
+        byte[] data = new byte[size];
+
+        for(int i = 0; i < size; i++) {
+            data[i] = letters[random.nextInt(letters.length)];
+        }
+
+        return data;
+    }
+
+    //
+    // Bytes in a block
+    //
+    private static final int BLOCK = 4096;
+}
@@ -0,0 +1,105 @@
+/*
+ *  Copyright (C) 2016 Cezary Regec (SudoWaster)
+ * 
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package huffmancoding.Kernels;
+
+import huffmancoding.TextTools.Histogram;
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * A byte histogram using the Vector API. Every lane counts into its own
+ * copy of the histogram (symbol * lanes + lane), so a gather, an add and
+ * a scatter never hit the same counter twice. The copies are summed at
+ * the end.
+ *
+ * Inputs shorter than Histogram.UNROLL_THRESHOLD are left to the scalar
+ * loop, the copies would cost more than they save.
+ *
+ * @author cezary
+ */
+class VectorSymbols implements SymbolKernel {
+
+    /**
+     * Checks if vectors are wide enough to help.
+     *
+     * @return a boolean determining whether to use the kernel
+     */
+    static boolean isSupported() {
+        return INTS.length() >= 8 && BYTES.length() == INTS.length();
+    }
+
+    @Override
+    public void count(byte[] data, int from, int to, int[] counts) {
+        if(to - from < Histogram.UNROLL_THRESHOLD) {
+            Histogram.count(data, from, to, counts);
+
+            return;
+        }
+
+        int lanes = INTS.length();
+        int[] copies = new int[Histogram.BYTES * lanes];
+        int[] index = new int[lanes];
+
+        IntVector lane = IntVector.zero(INTS).addIndex(1);
+        int i = from;
+
+        for(int end = to - lanes; i <= end; i += lanes) {
+            IntVector wide = (IntVector) ByteVector
+                    .fromArray(BYTES, data, i)
+                    .convertShape(VectorOperators.B2I, INTS, 0);
+
+            //
+            // Indexes are distinct, so the scatter loses no update
+            //
+            wide.and(0xFF).mul(lanes).add(lane).intoArray(index, 0);
+
+            IntVector.fromArray(INTS, copies, 0, index, 0).add(1)
+                    .intoArray(copies, 0, index, 0);
+        }
+
+        for(; i < to; i++) {
+            counts[data[i] & 0xFF]++;
+        }
+
+        //
+        // Sum the lane copies
+        //
+        for(int symbol = 0; symbol < Histogram.BYTES; symbol++) {
+            counts[symbol] += IntVector.fromArray(INTS, copies,
+                    symbol * lanes).reduceLanes(VectorOperators.ADD);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "vector" + INTS.vectorBitSize();
+    }
+
+    //
+    // Bytes are widened to ints, a quarter of the bits
+    //
+    private static final VectorSpecies<Integer> INTS =
+            IntVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Byte> BYTES =
+            ByteVector.SPECIES_64.withShape(VectorShape.forBitSize(
+            Math.max(64, INTS.vectorBitSize() / 4)));
+}